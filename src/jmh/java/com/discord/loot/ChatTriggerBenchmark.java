@@ -0,0 +1,48 @@
+package com.discord.loot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.Set;
+
+/** Cost of checking one GAMEMESSAGE for pet and other trigger phrases. */
+@State(Scope.Thread)
+public class ChatTriggerBenchmark {
+    private static final Set<String> LEGACY_PET_MESSAGES = Set.of(
+            "You have a funny feeling like you're being followed",
+            "You feel something weird sneaking into your backpack",
+            "You have a funny feeling like you would have been followed"
+    );
+
+    private String[] messages;
+    private ChatTriggerEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        messages = SyntheticDrops.GAME_MESSAGES;
+        engine = ChatTriggerEngine.compile(List.of("Your ring of wealth shines", "[News]"));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void automaton(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(engine.match(message));
+        }
+    }
+
+    /** The original PET_MESSAGES.stream().anyMatch(...) scan, pets only, for comparison. */
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void legacyStreamScan(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(LEGACY_PET_MESSAGES.stream().anyMatch(message::contains));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.discord.loot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Per-item cost of the loot rule decision made in onLootReceived. */
+@State(Scope.Thread)
+public class LootClassificationBenchmark {
+    private static final int ITEM_COUNT = 4000;
+    private static final int STREAM_LENGTH = 1024;
+
+    @Param({"50", "1000"})
+    int priorityDrops;
+
+    @Param({"0", "300"})
+    int lootRules;
+
+    private String[] names;
+    private int[] stream;
+    private LootSettingsSnapshot snapshot;
+    private ItemVerdictCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = SyntheticDrops.itemNames(ITEM_COUNT);
+        stream = SyntheticDrops.dropStream(STREAM_LENGTH, ITEM_COUNT, 42);
+        DiscordLootSettings settings = SyntheticDrops.settings(priorityDrops);
+        settings.lootRules = SyntheticDrops.lootRules(lootRules);
+        snapshot = LootSettingsSnapshot.of(settings);
+        cache = new ItemVerdictCache();
+        for (int id : stream) {
+            if (cache.find(id, snapshot) < 0) cache.put(id, names[id]);
+        }
+    }
+
+    /** Repeat drops: one cache probe per item, as on the client thread after warm-up. */
+    @Benchmark
+    @OperationsPerInvocation(STREAM_LENGTH)
+    public void cachedVerdict(Blackhole blackhole) {
+        for (int id : stream) {
+            int slot = cache.find(id, snapshot);
+            blackhole.consume(cache.verdictAt(slot).evaluate("zulrah", 1, 0));
+        }
+    }
+
+    /** First sighting of each item, or every drop right after a settings edit. */
+    @Benchmark
+    @OperationsPerInvocation(STREAM_LENGTH)
+    public void uncachedClassify(Blackhole blackhole) {
+        for (int id : stream) {
+            blackhole.consume(LootClassifier.classify(names[id], snapshot).evaluate("zulrah", 1, 0));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.discord.loot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/** What a notable drop costs the calling thread when it is handed to the tray and the loot feed. */
+@State(Scope.Thread)
+public class NotificationHandoffBenchmark {
+    private String[] names;
+    private TrayNotificationScheduler tray;
+    private LootFeedModel feed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        names = SyntheticDrops.itemNames(200);
+        // Toasts are swallowed; the interval keeps the scheduler merging like a real burst.
+        tray = new TrayNotificationScheduler(message -> { }, 3000, new PipelineMetrics());
+        feed = new LootFeedModel(500);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        tray.shutdown();
+    }
+
+    @Benchmark
+    public void trayOffer() {
+        int i = next++ % names.length;
+        tray.offer(names[i], 1, (i & 7) == 0);
+    }
+
+    @Benchmark
+    public void lootFeedInsert() {
+        int i = next++ % names.length;
+        feed.addItem(System.currentTimeMillis(), i, names[i], "Zulrah", 1);
+    }
+}
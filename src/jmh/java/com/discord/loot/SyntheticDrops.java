@@ -0,0 +1,97 @@
+package com.discord.loot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/** Deterministic drop tables and chat traffic shaped like a typical RSPS boss/slayer session. */
+final class SyntheticDrops {
+    static final String[] COMMON = {
+            "Bones", "Big bones", "Dragon bones", "Coins", "Rune arrow", "Death rune", "Blood rune",
+            "Law rune", "Shark", "Manta ray", "Pure essence", "Grimy ranarr weed", "Snapdragon seed",
+            "Magic logs", "Runite ore", "Adamantite bar", "Uncut diamond", "Crystal key", "Battlestaff",
+            "Zulrah's scales", "Dragon arrowtips", "Onyx bolts (e)", "Coal", "Yew logs", "Steel bar"
+    };
+    static final String[] FORTUNE = {
+            "Mystery box", "Super mystery box", "Slayer box", "Pvm cache", "Supply crate", "Skilling pack",
+            "Christmas present", "Donator box", "Pet mystery box", "Barrows crate"
+    };
+    static final String[] RARE = {
+            "Abyssal whip", "Tanzanite fang", "Magic fang", "Serpentine visage", "Dragon warhammer",
+            "Twisted bow", "Scythe of vitur", "Elder maul", "Dexterous prayer scroll", "Kraken tentacle"
+    };
+    static final String[] GAME_MESSAGES = {
+            "Your Zulrah kill count is: 412.",
+            "Fight duration: 1:08. Personal best: 0:58",
+            "<col=ef1020>Valuable drop: Tanzanite fang (4,132,000 coins)</col>",
+            "You have a funny feeling like you're being followed.",
+            "Welcome to August RSPS.",
+            "Your Slayer task is complete, return to a Slayer master.",
+            "Your ring of wealth shines brightly!",
+            "<col=ff0000>[News]</col> Someone just received a Twisted bow!",
+            "You eat the shark. It heals some health.",
+            "New item added to your collection log: Magic fang"
+    };
+
+    private SyntheticDrops() {
+    }
+
+    static String[] itemNames(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            if (i < COMMON.length) names[i] = COMMON[i];
+            else if (i % 40 == 0) names[i] = FORTUNE[(i / 40) % FORTUNE.length];
+            else if (i % 97 == 0) names[i] = RARE[(i / 97) % RARE.length];
+            else names[i] = COMMON[i % COMMON.length] + " (" + i + ")";
+        }
+        return names;
+    }
+
+    /** Item ids for a stream of drops: mostly commons, occasionally a box or a rare. */
+    static int[] dropStream(int length, int itemCount, long seed) {
+        Random random = new Random(seed);
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) {
+            int roll = random.nextInt(1000);
+            if (roll < 5) ids[i] = 97 * (1 + random.nextInt(Math.max(1, itemCount / 97 - 1)));
+            else if (roll < 60) ids[i] = 40 * (1 + random.nextInt(Math.max(1, itemCount / 40 - 1)));
+            else ids[i] = random.nextInt(COMMON.length);
+        }
+        return ids;
+    }
+
+    static DiscordLootSettings settings(int priorityDrops) {
+        DiscordLootSettings settings = new DiscordLootSettings();
+        List<String> drops = new ArrayList<>();
+        for (String rare : RARE) {
+            drops.add(rare.toLowerCase());
+        }
+        for (int i = drops.size(); i < priorityDrops; i++) {
+            drops.add("custom unique item " + i);
+        }
+        settings.priorityDrops = drops;
+        settings.chatTriggers = List.of("Your ring of wealth shines", "[News]");
+        return settings;
+    }
+
+    /** A mix of exact, glob, regex and NPC/quantity-filtered rules, as a heavy user might write. */
+    static List<String> lootRules(int count) {
+        List<String> rules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            switch (i % 4) {
+                case 0:
+                    rules.add("include \"" + RARE[i % RARE.length] + "\" -> discord");
+                    break;
+                case 1:
+                    rules.add("include \"*unique item " + i + "*\" -> tray,sound");
+                    break;
+                case 2:
+                    rules.add("include /^custom (unique|rare) item " + i + "$/ qty=2.. -> pm");
+                    break;
+                default:
+                    rules.add("exclude *item " + i + " npc=\"Monster " + i + "\" -> sound");
+            }
+        }
+        return rules;
+    }
+}
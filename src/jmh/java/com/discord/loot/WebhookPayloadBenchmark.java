@@ -0,0 +1,37 @@
+package com.discord.loot;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Building and encoding one webhook body, as the dispatcher does per flush. */
+@State(Scope.Thread)
+public class WebhookPayloadBenchmark {
+    @Param({"1", "10"})
+    int embeds;
+
+    private final WebhookPayloadEncoder encoder = new WebhookPayloadEncoder();
+    private List<DiscordEmbed> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        batch = new ArrayList<>(embeds);
+        for (int i = 0; i < embeds; i++) {
+            String item = SyntheticDrops.RARE[i % SyntheticDrops.RARE.length];
+            batch.add(new DiscordEmbed(item, "1x " + item + " dropped by \"Zulrah\" for Player " + i,
+                    DiscordEmbed.COLOR_GREEN, 1_700_000_000_000L + i, null,
+                    List.of(new DiscordEmbed.Field("Quantity", "1", true))));
+        }
+    }
+
+    @Benchmark
+    public int encodePayload() {
+        return encoder.encode(batch);
+    }
+}
@@ -0,0 +1,36 @@
+package com.discord.loot;
+
+public final class ChatTrigger {
+    public enum Kind {
+        PET("Pet Drop"),
+        COLLECTION_LOG("Collection Log"),
+        VALUABLE_DROP("Valuable Drop"),
+        CUSTOM("Chat Trigger");
+
+        private final String title;
+
+        Kind(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    private final Kind kind;
+    private final String phrase;
+
+    public ChatTrigger(Kind kind, String phrase) {
+        this.kind = kind;
+        this.phrase = phrase;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getPhrase() {
+        return phrase;
+    }
+}
@@ -0,0 +1,166 @@
+package com.discord.loot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Aho-Corasick automaton over every enabled trigger phrase, flattened into a dense transition table
+ * so a chat message is matched case-insensitively in a single pass without allocating. Triggers of
+ * disabled kinds are left out when compiling, so they can't hide an enabled one later in a message.
+ */
+final class ChatTriggerEngine {
+    static final List<ChatTrigger> BUILT_IN = List.of(
+            new ChatTrigger(ChatTrigger.Kind.PET, "You have a funny feeling like you're being followed"),
+            new ChatTrigger(ChatTrigger.Kind.PET, "You feel something weird sneaking into your backpack"),
+            new ChatTrigger(ChatTrigger.Kind.PET, "You have a funny feeling like you would have been followed"),
+            new ChatTrigger(ChatTrigger.Kind.COLLECTION_LOG, "New item added to your collection log"),
+            new ChatTrigger(ChatTrigger.Kind.VALUABLE_DROP, "Valuable drop:")
+    );
+
+    private static final int ASCII = 128;
+
+    private final ChatTrigger[] triggers;
+    private final List<String> customPhrases;
+    private final boolean petsEnabled;
+    private final boolean broadcastsEnabled;
+    // Alphabet index of each ASCII char; non-ASCII chars are looked up in the sorted array instead.
+    private final int[] asciiIndex = new int[ASCII];
+    private final char[] wideChars;
+    private final int alphabetSize;
+    private final int[] transitions;
+    // Lowest index of a trigger ending at each state (following suffix links), or -1.
+    private final int[] output;
+
+    private ChatTriggerEngine(List<ChatTrigger> triggerList, List<String> customPhrases,
+                              boolean petsEnabled, boolean broadcastsEnabled) {
+        this.triggers = triggerList.toArray(new ChatTrigger[0]);
+        this.customPhrases = customPhrases;
+        this.petsEnabled = petsEnabled;
+        this.broadcastsEnabled = broadcastsEnabled;
+
+        String[] phrases = new String[triggers.length];
+        StringBuilder wide = new StringBuilder();
+        int nextIndex = 1;
+        for (int t = 0; t < triggers.length; t++) {
+            phrases[t] = triggers[t].getPhrase().toLowerCase(Locale.ROOT);
+            for (char c : phrases[t].toCharArray()) {
+                if (c < ASCII) {
+                    if (asciiIndex[c] == 0) asciiIndex[c] = nextIndex++;
+                } else if (wide.indexOf(String.valueOf(c)) < 0) {
+                    wide.append(c);
+                }
+            }
+        }
+        wideChars = wide.toString().toCharArray();
+        Arrays.sort(wideChars);
+        int wideBase = nextIndex;
+        alphabetSize = wideBase + wideChars.length;
+
+        // Build the trie with growable per-state rows.
+        List<int[]> rows = new ArrayList<>();
+        List<Integer> outputs = new ArrayList<>();
+        rows.add(new int[alphabetSize]);
+        outputs.add(-1);
+        for (int t = 0; t < phrases.length; t++) {
+            int state = 0;
+            for (char c : phrases[t].toCharArray()) {
+                int symbol = c < ASCII ? asciiIndex[c] : wideBase + Arrays.binarySearch(wideChars, c);
+                int next = rows.get(state)[symbol];
+                if (next == 0) {
+                    next = rows.size();
+                    rows.add(new int[alphabetSize]);
+                    outputs.add(-1);
+                    rows.get(state)[symbol] = next;
+                }
+                state = next;
+            }
+            if (outputs.get(state) < 0) outputs.set(state, t);
+        }
+
+        int states = rows.size();
+        transitions = new int[states * alphabetSize];
+        output = new int[states];
+        for (int s = 0; s < states; s++) {
+            System.arraycopy(rows.get(s), 0, transitions, s * alphabetSize, alphabetSize);
+            output[s] = outputs.get(s);
+        }
+
+        // Breadth-first pass: resolve suffix links into direct transitions and merge outputs.
+        int[] fail = new int[states];
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int a = 0; a < alphabetSize; a++) {
+            int next = transitions[a];
+            if (next != 0) queue.add(next);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            int f = fail[s];
+            if (output[f] >= 0 && (output[s] < 0 || output[f] < output[s])) output[s] = output[f];
+            for (int a = 0; a < alphabetSize; a++) {
+                int next = transitions[s * alphabetSize + a];
+                int fallback = transitions[f * alphabetSize + a];
+                if (next != 0) {
+                    fail[next] = fallback;
+                    queue.add(next);
+                } else {
+                    transitions[s * alphabetSize + a] = fallback;
+                }
+            }
+        }
+    }
+
+    static ChatTriggerEngine compile(List<String> customPhrases) {
+        return compile(customPhrases, true, true);
+    }
+
+    static ChatTriggerEngine compile(List<String> customPhrases, boolean petsEnabled, boolean broadcastsEnabled) {
+        List<ChatTrigger> all = new ArrayList<>();
+        for (ChatTrigger trigger : BUILT_IN) {
+            if (isEnabled(trigger.getKind(), petsEnabled, broadcastsEnabled)) all.add(trigger);
+        }
+        for (String phrase : customPhrases) {
+            if (phrase == null || phrase.isBlank()) continue;
+            all.add(new ChatTrigger(ChatTrigger.Kind.CUSTOM, phrase.trim()));
+        }
+        return new ChatTriggerEngine(all, new ArrayList<>(customPhrases), petsEnabled, broadcastsEnabled);
+    }
+
+    /** Recompiles only if the user-defined phrases or enabled kinds differ from the ones this engine was built with. */
+    ChatTriggerEngine withSettings(List<String> phrases, boolean petsEnabled, boolean broadcastsEnabled) {
+        return customPhrases.equals(phrases) && this.petsEnabled == petsEnabled && this.broadcastsEnabled == broadcastsEnabled
+                ? this : compile(phrases, petsEnabled, broadcastsEnabled);
+    }
+
+    private static boolean isEnabled(ChatTrigger.Kind kind, boolean petsEnabled, boolean broadcastsEnabled) {
+        switch (kind) {
+            case PET:
+                return petsEnabled;
+            case COLLECTION_LOG:
+            case VALUABLE_DROP:
+                return broadcastsEnabled;
+            default:
+                return true;
+        }
+    }
+
+    /** Returns the first enabled trigger found in {@code message}, or null if none match. */
+    ChatTrigger match(String message) {
+        int state = 0;
+        for (int i = 0, len = message.length(); i < len; i++) {
+            state = transitions[state * alphabetSize + symbolOf(Character.toLowerCase(message.charAt(i)))];
+            int t = output[state];
+            if (t >= 0) return triggers[t];
+        }
+        return null;
+    }
+
+    private int symbolOf(char c) {
+        if (c < ASCII) return asciiIndex[c];
+        int i = Arrays.binarySearch(wideChars, c);
+        return i < 0 ? 0 : alphabetSize - wideChars.length + i;
+    }
+}
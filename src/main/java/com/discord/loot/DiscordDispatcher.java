@@ -0,0 +1,393 @@
+package com.discord.loot;
+
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Folds embeds queued within a short window into multi-embed webhook messages and paces
+ * them through a {@link RateLimitBucket}, retrying 429s and server errors instead of dropping.
+ * Every webhook URL is its own destination with a separate queue, bucket and backoff, so a
+ * throttled or slow channel never holds up delivery to the others. A batch that keeps failing
+ * stays at the head of its queue and is retried until it goes through, however long Discord is out.
+ *
+ * <p>Batches that carry screenshots go out as multipart uploads. Embeds are journaled as soon as
+ * they're queued, while their screenshot may still be encoding; they and everything behind them
+ * wait for it. Screenshots aren't journaled, so a notification replayed from the outbox after a
+ * restart is sent without its image.
+ */
+class DiscordDispatcher implements WebhookQueue {
+    static final int MAX_EMBEDS_PER_MESSAGE = 10;
+
+    private static final long COALESCE_WINDOW_MS = 250;
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+    // Failures in a row before we warn; retries then continue every MAX_BACKOFF_MS.
+    private static final int WARN_AFTER_ATTEMPTS = 6;
+
+    private final Map<String, Destination> destinations = new HashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DiscordDispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final WebhookTransport transport;
+    private final NotificationOutbox outbox;
+    private final PipelineMetrics metrics;
+
+    private static final class Destination {
+        final String webhookUrl;
+        // Discord allows 5 webhook requests per 2 seconds; the headers refine this once we get a reply.
+        final RateLimitBucket bucket = new RateLimitBucket(5, 2000);
+        final Deque<PendingEmbed> pending = new ArrayDeque<>();
+        // Reused for every request: only one batch per destination is on the wire at a time,
+        // and the next flush runs only after the previous response has come back.
+        final WebhookPayloadEncoder encoder = new WebhookPayloadEncoder();
+        final List<DiscordEmbed> batchEmbeds = new ArrayList<>(MAX_EMBEDS_PER_MESSAGE);
+        final List<ScreenshotCapture.Screenshot> batchScreenshots = new ArrayList<>(MAX_EMBEDS_PER_MESSAGE);
+
+        boolean flushScheduled;
+        boolean sending;
+        int failedAttempts;
+
+        Destination(String webhookUrl) {
+            this.webhookUrl = webhookUrl;
+        }
+
+        boolean idle() {
+            return pending.isEmpty() && !sending;
+        }
+    }
+
+    DiscordDispatcher(WebhookTransport transport, NotificationOutbox outbox, PipelineMetrics metrics) {
+        this.transport = transport;
+        this.outbox = outbox;
+        this.metrics = metrics;
+        metrics.setDiscordQueueDepth(this::pendingCount);
+    }
+
+    synchronized int pendingCount() {
+        int count = 0;
+        for (Destination destination : destinations.values()) {
+            count += destination.pending.size();
+        }
+        return count;
+    }
+
+    @Override
+    public void enqueue(String webhookUrl, List<DiscordEmbed> embeds,
+                        CompletableFuture<ScreenshotCapture.Screenshot> screenshot) {
+        if (webhookUrl == null || webhookUrl.isEmpty() || embeds.isEmpty()) {
+            ScreenshotCapture.releaseWhenDone(screenshot);
+            return;
+        }
+
+        List<PendingEmbed> added = new ArrayList<>(embeds.size());
+        synchronized (this) {
+            Destination destination = destination(webhookUrl);
+            for (DiscordEmbed embed : embeds) {
+                added.add(new PendingEmbed(outbox.append(webhookUrl, embed), embed, screenshot != null, null));
+            }
+            destination.pending.addAll(added);
+            if (screenshot == null) scheduleFlush(destination);
+        }
+        if (screenshot != null) screenshot.whenComplete((image, error) -> attach(webhookUrl, added, image));
+    }
+
+    /**
+     * Queues embeds journaled somewhere else, such as another client's outbox, so they're not
+     * written to this one. {@code onAcknowledged} runs once every one of them has been delivered or
+     * rejected by Discord.
+     */
+    void enqueue(String webhookUrl, List<DiscordEmbed> embeds,
+                 CompletableFuture<ScreenshotCapture.Screenshot> screenshot, Runnable onAcknowledged) {
+        if (webhookUrl == null || webhookUrl.isEmpty() || embeds.isEmpty()) {
+            ScreenshotCapture.releaseWhenDone(screenshot);
+            onAcknowledged.run();
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(embeds.size());
+        Runnable countDown = () -> {
+            if (remaining.decrementAndGet() == 0) onAcknowledged.run();
+        };
+        List<PendingEmbed> added = new ArrayList<>(embeds.size());
+        synchronized (this) {
+            Destination destination = destination(webhookUrl);
+            for (DiscordEmbed embed : embeds) {
+                added.add(new PendingEmbed(0, embed, screenshot != null, countDown));
+            }
+            destination.pending.addAll(added);
+            if (screenshot == null) scheduleFlush(destination);
+        }
+        if (screenshot != null) screenshot.whenComplete((image, error) -> attach(webhookUrl, added, image));
+    }
+
+    // On the capture's encoder or timeout thread. Takes over the reference the capture handed us.
+    private void attach(String webhookUrl, List<PendingEmbed> embeds, ScreenshotCapture.Screenshot screenshot) {
+        synchronized (this) {
+            for (PendingEmbed embed : embeds) {
+                if (screenshot != null) screenshot.retain();
+                embed.screenshot = screenshot;
+                embed.awaitingScreenshot = false;
+            }
+            if (screenshot != null) screenshot.release();
+            scheduleFlush(destination(webhookUrl));
+        }
+    }
+
+    /** Queues notifications recovered from the outbox, which are already journaled. */
+    void resend(List<NotificationOutbox.Entry> entries) {
+        if (entries.isEmpty()) return;
+
+        synchronized (this) {
+            for (NotificationOutbox.Entry entry : entries) {
+                Destination destination = destination(entry.webhookUrl);
+                destination.pending.addLast(new PendingEmbed(entry.id, entry.embed, false, null));
+                scheduleFlush(destination);
+            }
+        }
+    }
+
+    // Caller holds the lock.
+    private Destination destination(String webhookUrl) {
+        return destinations.computeIfAbsent(webhookUrl, Destination::new);
+    }
+
+    // Caller holds the lock.
+    private void scheduleFlush(Destination destination) {
+        if (destination.flushScheduled) return;
+        destination.flushScheduled = true;
+        executor.schedule(() -> flush(destination), COALESCE_WINDOW_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends whatever is still queued, skipping the coalescing window, and waits up to
+     * {@code deadline} for it to be delivered before stopping the dispatcher thread.
+     */
+    void shutdown(Duration deadline) {
+        long end = System.nanoTime() + deadline.toNanos();
+        synchronized (this) {
+            for (Destination destination : destinations.values()) {
+                executor.execute(() -> flush(destination));
+            }
+            try {
+                long remaining;
+                while (!allIdle() && (remaining = end - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            int undelivered = pendingCount();
+            if (undelivered > 0) {
+                System.err.println("Discord dispatcher stopped with " + undelivered + " undelivered notification(s)");
+            }
+        }
+        executor.shutdownNow();
+    }
+
+    // Caller holds the lock.
+    private boolean allIdle() {
+        for (Destination destination : destinations.values()) {
+            if (!destination.idle()) return false;
+        }
+        return true;
+    }
+
+    private void flush(Destination destination) {
+        synchronized (this) {
+            // A shutdown flush can race the scheduled one; only one batch per destination is on the wire.
+            if (destination.sending) return;
+        }
+
+        synchronized (this) {
+            // Nothing to send, or the head still waits for its screenshot; don't spend a token on it.
+            if (destination.pending.isEmpty() || destination.pending.peekFirst().awaitingScreenshot) {
+                destination.flushScheduled = false;
+                notifyAll();
+                return;
+            }
+        }
+
+        long wait = destination.bucket.tryAcquire();
+        if (wait > 0) {
+            executor.schedule(() -> flush(destination), wait, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        List<PendingEmbed> batch = new ArrayList<>(MAX_EMBEDS_PER_MESSAGE);
+        synchronized (this) {
+            // Embeds still waiting for their screenshot hold back everything queued after them.
+            while (batch.size() < MAX_EMBEDS_PER_MESSAGE && !destination.pending.isEmpty()
+                    && !destination.pending.peekFirst().awaitingScreenshot) {
+                batch.add(destination.pending.pollFirst());
+            }
+            if (batch.isEmpty()) {
+                destination.flushScheduled = false;
+                notifyAll();
+                return;
+            }
+            destination.sending = true;
+        }
+
+        destination.batchEmbeds.clear();
+        destination.batchScreenshots.clear();
+        boolean multipart = false;
+        for (PendingEmbed pendingEmbed : batch) {
+            destination.batchEmbeds.add(pendingEmbed.embed);
+            destination.batchScreenshots.add(pendingEmbed.screenshot);
+            multipart |= pendingEmbed.screenshot != null;
+        }
+        int length = multipart
+                ? destination.encoder.encodeMultipart(destination.batchEmbeds, destination.batchScreenshots)
+                : destination.encoder.encode(destination.batchEmbeds);
+        String contentType = multipart ? destination.encoder.multipartContentType() : "application/json";
+
+        metrics.webhookRequests.increment();
+        long sentAt = System.nanoTime();
+        transport.post(destination.webhookUrl, contentType, destination.encoder.buffer(), 0, length)
+                .whenCompleteAsync((response, error) -> {
+                    metrics.webhookRoundTrip.recordNanos(System.nanoTime() - sentAt);
+                    long delay = error != null
+                            ? onFailure(destination, batch, error)
+                            : onResponse(destination, batch, response);
+                    synchronized (this) {
+                        destination.sending = false;
+                        if (delay < 0 && destination.pending.isEmpty()) {
+                            destination.flushScheduled = false;
+                            notifyAll();
+                            return;
+                        }
+                    }
+                    executor.schedule(() -> flush(destination), Math.max(0, delay), TimeUnit.MILLISECONDS);
+                }, executor);
+    }
+
+    private void requeue(Destination destination, List<PendingEmbed> batch) {
+        synchronized (this) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                destination.pending.addFirst(batch.get(i));
+            }
+        }
+    }
+
+    private void acknowledge(List<PendingEmbed> batch) {
+        for (PendingEmbed embed : batch) {
+            outbox.ack(embed.outboxId);
+            if (embed.onAcknowledged != null) embed.onAcknowledged.run();
+        }
+        releaseScreenshots(batch);
+    }
+
+    private static boolean releaseScreenshots(List<PendingEmbed> batch) {
+        boolean any = false;
+        for (PendingEmbed embed : batch) {
+            if (embed.screenshot == null) continue;
+            embed.screenshot.release();
+            embed.screenshot = null;
+            any = true;
+        }
+        return any;
+    }
+
+    /**
+     * Handles a webhook response and returns the delay before the next flush, or -1 if the batch
+     * was delivered (or rejected) and the queue can continue immediately.
+     */
+    private long onResponse(Destination destination, List<PendingEmbed> batch, HttpResponse<Void> response) {
+        int responseCode = response.statusCode();
+        metrics.recordResponseCode(responseCode);
+        destination.bucket.onRateLimitHeaders(
+                response.headers().firstValue("X-RateLimit-Limit").orElse(null),
+                response.headers().firstValue("X-RateLimit-Remaining").orElse(null),
+                response.headers().firstValue("X-RateLimit-Reset-After").orElse(null));
+
+        if (responseCode == 429) {
+            destination.bucket.onTooManyRequests(response.headers().firstValue("Retry-After").orElse(null));
+            metrics.webhookRetries.increment();
+            requeue(destination, batch);
+            // The bucket is now blocked for Retry-After, so the next flush waits it out.
+            return 0;
+        }
+
+        if (responseCode == 413 && releaseScreenshots(batch)) {
+            // Too large for the channel's upload limit; the text is still worth sending.
+            System.err.println("Discord webhook rejected screenshot as too large, sending without it");
+            requeue(destination, batch);
+            return 0;
+        }
+
+        if (responseCode >= 500) {
+            System.err.println("Discord webhook failed with code: " + responseCode + ", retrying");
+            return retryLater(destination, batch);
+        }
+
+        destination.failedAttempts = 0;
+        // Other 4xx responses (bad URL, deleted webhook, invalid body) would fail again on replay.
+        acknowledge(batch);
+        if (responseCode != 204 && responseCode != 200) {
+            System.err.println("Discord webhook failed with code: " + responseCode);
+            metrics.droppedNotifications.add(batch.size());
+        }
+        return -1;
+    }
+
+    private long onFailure(Destination destination, List<PendingEmbed> batch, Throwable error) {
+        Throwable cause = error.getCause() != null ? error.getCause() : error;
+        metrics.webhookFailures.increment();
+        if (cause instanceof IllegalArgumentException) {
+            System.err.println("Discord webhook not sent: " + cause.getMessage());
+            metrics.droppedNotifications.add(batch.size());
+            acknowledge(batch);
+            return -1;
+        }
+        if (cause instanceof IllegalStateException) {
+            // Transport is shutting down; the outbox replays these on the next start.
+            releaseScreenshots(batch);
+            return -1;
+        }
+        System.err.println("Discord webhook request failed: " + cause);
+        return retryLater(destination, batch);
+    }
+
+    private long retryLater(Destination destination, List<PendingEmbed> batch) {
+        if (++destination.failedAttempts == WARN_AFTER_ATTEMPTS) {
+            System.err.println("Discord webhook failed " + destination.failedAttempts + " times in a row, retrying "
+                    + batch.size() + " notification(s) every " + MAX_BACKOFF_MS / 1000 + " s");
+        }
+        metrics.webhookRetries.increment();
+        requeue(destination, batch);
+        int doublings = Math.min(destination.failedAttempts - 1, 16);
+        return Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << doublings);
+    }
+
+    private static final class PendingEmbed {
+        final long outboxId;
+        final DiscordEmbed embed;
+        // Null unless the embed was journaled elsewhere; see the enqueue that takes it.
+        final Runnable onAcknowledged;
+        // Both set under the dispatcher's lock once the capture completes. The screenshot is dropped
+        // if the upload is rejected as too large; after that it's only touched by the batch's sender.
+        boolean awaitingScreenshot;
+        ScreenshotCapture.Screenshot screenshot;
+
+        PendingEmbed(long outboxId, DiscordEmbed embed, boolean awaitingScreenshot, Runnable onAcknowledged) {
+            this.outboxId = outboxId;
+            this.embed = embed;
+            this.awaitingScreenshot = awaitingScreenshot;
+            this.onAcknowledged = onAcknowledged;
+        }
+    }
+}
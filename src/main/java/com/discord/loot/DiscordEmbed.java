@@ -0,0 +1,80 @@
+package com.discord.loot;
+
+import java.util.List;
+
+public class DiscordEmbed {
+    static final int COLOR_GREEN = 65280;
+
+    public static final class Field {
+        private final String name;
+        private final String value;
+        private final boolean inline;
+
+        public Field(String name, String value, boolean inline) {
+            this.name = name;
+            this.value = value;
+            this.inline = inline;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isInline() {
+            return inline;
+        }
+    }
+
+    private final String title;
+    private final String description;
+    private final int color;
+    private final long timestamp;
+    private final String thumbnailUrl;
+    private final List<Field> fields;
+
+    public DiscordEmbed(String title, String description, int color) {
+        this(title, description, color, 0, null, List.of());
+    }
+
+    /**
+     * @param timestamp epoch millis shown as the embed time, or 0 for none
+     * @param thumbnailUrl image URL for the embed thumbnail, or null for none
+     */
+    public DiscordEmbed(String title, String description, int color, long timestamp, String thumbnailUrl,
+                        List<Field> fields) {
+        this.title = title;
+        this.description = description;
+        this.color = color;
+        this.timestamp = timestamp;
+        this.thumbnailUrl = thumbnailUrl;
+        this.fields = List.copyOf(fields);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+}
@@ -1,24 +1,35 @@
 package com.discord.loot;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import net.runelite.client.ui.PluginPanel;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.io.IOException;
-import java.io.Reader;
-import java.io.Writer;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.LocalTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class DiscordLootPanel extends PluginPanel {
     private final JTextField webhookField;
     private final DefaultListModel<String> priorityListModel;
-    private final DefaultListModel<String> lootListModel;
+    private final LootFeedModel lootListModel;
     private final JCheckBox discordCheckBox;
     private final JCheckBox pmCheckBox;
     private final JCheckBox trayCheckBox;
@@ -26,17 +37,54 @@ public class DiscordLootPanel extends PluginPanel {
     private final JCheckBox petCheckBox;
     private final JCheckBox fortuneCheckBox;
     private final JCheckBox slayerCheckBox;
+    private final JCheckBox broadcastCheckBox;
+    private final JCheckBox digestCheckBox;
+    private final JCheckBox screenshotCheckBox;
+    private final JCheckBox sharedDispatchCheckBox;
+    private final JCheckBox valueCheckBox;
+    private final JTextField minimumValueField;
+    private final JTextField[] soundFileFields = new JTextField[SoundEngine.Tier.values().length];
+    private JTextArea statisticsText;
+    // Set from the pipeline's startup thread and read on the EDT.
+    private volatile DropStatistics statistics;
+    private JTextArea metricsText;
+    private PipelineMetrics metrics;
     private final JButton testButton;
-    private final JButton addDropButton;
-    private final JButton removeDropButton;
-    private final JTextField newDropField;
+    private JTextField newDropField;
+    private final DefaultListModel<String> suggestionModel = new DefaultListModel<>();
+    private JScrollPane suggestionScroll;
+    private JLabel priorityStatus;
+    private volatile ItemNameIndex itemNames;
+    private ItemNameIndex.Lookup priorityLookup;
+    private final JTextArea lootRulesArea;
+    private final JLabel lootRulesStatus;
+    private final DefaultListModel<String> routeListModel;
+    private JComboBox<WebhookRoute.Category> routeCategoryBox;
+    private JTextField routeItemField;
+    private JTextField routeNpcField;
+    private JTextField routeWebhooksField;
+
+    private JComboBox<String> historyQueryBox;
+    private JTextField historyField;
+    private JTextArea historyResults;
+    private boolean sectionsBuilt;
+    // Set from the pipeline's startup thread and read on the EDT.
+    private volatile LootHistoryStore historyStore;
+
+    private final SettingsStore settingsStore =
+            new SettingsStore(NpcDropDiscordPlugin.PLUGIN_DIR.resolve("discord_loot_settings.json"));
+    private static final String HISTORY_BY_NPC = "Drops from NPC";
+    private static final String HISTORY_ITEM_TOTAL = "Total of item";
+    private static final String HISTORY_LAST_DAYS = "Last N days";
+    private static final int HISTORY_RESULT_LIMIT = 100;
+    private static final int SUGGESTION_LIMIT = 8;
+    private static final int UNKNOWN_ITEMS_SHOWN = 50;
+    private static final DateTimeFormatter HISTORY_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
 
-    private final JList<String> lootList;
-
-    private final Path settingsFile =
-            Path.of(System.getProperty("user.home"), ".augustrsps", "plugins", "discord_loot_settings.json");
-    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
     private DiscordLootSettings settings;
+    private boolean applyingSettings;
+    private volatile LootSettingsSnapshot snapshot = LootSettingsSnapshot.of(new DiscordLootSettings());
 
     public DiscordLootPanel() {
         setLayout(new BoxLayout(this, BoxLayout.Y_AXIS));
@@ -81,9 +129,18 @@ public class DiscordLootPanel extends PluginPanel {
         petCheckBox = new JCheckBox("Pet Notifications", true);
         fortuneCheckBox = new JCheckBox("Fortune", true);
         slayerCheckBox = new JCheckBox("Ignore Slayer Boxes", true);
+        broadcastCheckBox = new JCheckBox("Collection Log / Valuable Drops", false);
+        digestCheckBox = new JCheckBox("Discord Digest", false);
+        screenshotCheckBox = new JCheckBox("Attach Screenshot", false);
+        sharedDispatchCheckBox = new JCheckBox("Share Dispatcher Between Clients", false);
         petCheckBox.setToolTipText("Enable notifications when a pet drops.");
         fortuneCheckBox.setToolTipText("If your account has Fortune league perk, enable this for notification of any boxes");
         slayerCheckBox.setToolTipText("This will disable Slayer box drop notifications");
+        broadcastCheckBox.setToolTipText("Notify on collection log and valuable drop game messages");
+        digestCheckBox.setToolTipText("Send a periodic summary of kills, drops and rates to Discord instead of one message per drop");
+        screenshotCheckBox.setToolTipText("Attach a screenshot to the Discord message for priority drops and pets");
+        sharedDispatchCheckBox.setToolTipText("Send Discord notifications from every client on this machine through one of them, "
+                + "so they share Discord's rate limits; takes effect after restarting the plugin");
 
         optionsPanel.add(discordCheckBox);
         optionsPanel.add(pmCheckBox);
@@ -92,82 +149,600 @@ public class DiscordLootPanel extends PluginPanel {
         optionsPanel.add(petCheckBox);
         optionsPanel.add(fortuneCheckBox);
         optionsPanel.add(slayerCheckBox);
-        optionsPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 150));
+        optionsPanel.add(broadcastCheckBox);
+        optionsPanel.add(digestCheckBox);
+        optionsPanel.add(screenshotCheckBox);
+        optionsPanel.add(sharedDispatchCheckBox);
+        optionsPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 230));
         add(optionsPanel);
         add(Box.createVerticalStrut(10));
 
+        // Value Threshold Panel
+        JPanel valuePanel = new JPanel(new GridLayout(0, 1, 5, 5));
+        valuePanel.setBorder(BorderFactory.createTitledBorder("Value Threshold"));
+        valueCheckBox = new JCheckBox("Notify on Stack Value", false);
+        valueCheckBox.setToolTipText("Notify for any drop whose stack is worth at least the value below");
+        minimumValueField = new JTextField();
+        minimumValueField.setToolTipText("Minimum stack value in gp");
+        valuePanel.add(valueCheckBox);
+        valuePanel.add(minimumValueField);
+        valuePanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 80));
+        add(valuePanel);
+        add(Box.createVerticalStrut(10));
+
+        // Sounds Panel
+        JPanel soundPanel = new JPanel(new GridLayout(0, 1, 5, 5));
+        soundPanel.setBorder(BorderFactory.createTitledBorder("Sounds"));
+        for (SoundEngine.Tier tier : SoundEngine.Tier.values()) {
+            JTextField field = new JTextField();
+            field.setToolTipText("Path to a WAV file for " + tier + " alerts; leave empty for the built-in sound");
+            soundFileFields[tier.ordinal()] = field;
+            soundPanel.add(new JLabel(tier + " sound (WAV):"));
+            soundPanel.add(field);
+        }
+        JPanel soundTestPanel = new JPanel(new BorderLayout(5, 0));
+        JComboBox<SoundEngine.Tier> soundTestBox = new JComboBox<>(SoundEngine.Tier.values());
+        JButton soundTestButton = new JButton("Test");
+        soundTestButton.addActionListener(e ->
+                NpcDropDiscordPlugin.playTestSound((SoundEngine.Tier) soundTestBox.getSelectedItem()));
+        soundTestPanel.add(soundTestBox, BorderLayout.CENTER);
+        soundTestPanel.add(soundTestButton, BorderLayout.EAST);
+        soundPanel.add(soundTestPanel);
+        soundPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 300));
+        add(soundPanel);
+        add(Box.createVerticalStrut(10));
+
+        // Loot Rules Panel
+        JPanel rulesPanel = new JPanel(new BorderLayout(5, 5));
+        rulesPanel.setBorder(BorderFactory.createTitledBorder("Loot Rules"));
+        lootRulesArea = new JTextArea(5, 0);
+        lootRulesArea.setToolTipText("<html>One rule per line:<br>"
+                + "[include|exclude] ITEM [npc=NPC] [qty=MIN..MAX] [value=MIN..MAX] [-&gt; discord,pm,tray,sound]<br>"
+                + "ITEM and NPC are globs like *dragon*, \"quoted globs\" or /regex/; values accept k, m and b.<br>"
+                + "Excludes remove actions from matching includes; priority drops always notify.</html>");
+        rulesPanel.add(new JScrollPane(lootRulesArea), BorderLayout.CENTER);
+        lootRulesStatus = new JLabel(" ");
+        rulesPanel.add(lootRulesStatus, BorderLayout.SOUTH);
+        rulesPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 200));
+        add(rulesPanel);
+        add(Box.createVerticalStrut(10));
+
+        // Models behind the sections onActivate builds; settings and the feed fill them before then.
+        priorityListModel = new DefaultListModel<>();
+        routeListModel = new DefaultListModel<>();
+        lootListModel = new LootFeedModel(new DiscordLootSettings().lootFeedCapacity);
+
+        DocumentListener editListener = onDocumentChange(this::onSettingsEdited);
+        webhookField.getDocument().addDocumentListener(editListener);
+        minimumValueField.getDocument().addDocumentListener(editListener);
+        for (JTextField field : soundFileFields) {
+            field.getDocument().addDocumentListener(editListener);
+        }
+        lootRulesArea.getDocument().addDocumentListener(editListener);
+        for (JCheckBox checkBox : new JCheckBox[]{discordCheckBox, pmCheckBox, trayCheckBox, soundCheckBox,
+                petCheckBox, fortuneCheckBox, slayerCheckBox, broadcastCheckBox, digestCheckBox, screenshotCheckBox, sharedDispatchCheckBox, valueCheckBox}) {
+            checkBox.addItemListener(e -> onSettingsEdited());
+        }
+    }
+
+    /**
+     * Builds the list, history and statistics sections the first time the panel is opened. Their
+     * models exist from the start, so settings and feed entries that arrive earlier just show up.
+     */
+    @Override
+    public void onActivate() {
+        if (sectionsBuilt) return;
+        sectionsBuilt = true;
+        JPanel sections = new JPanel();
+        sections.setLayout(new BoxLayout(sections, BoxLayout.Y_AXIS));
+
         // Priority Drops Panel
         JPanel priorityPanel = new JPanel(new BorderLayout(5, 5));
         priorityPanel.setBorder(BorderFactory.createTitledBorder("Priority Drops"));
-        priorityListModel = new DefaultListModel<>();
         JList<String> priorityList = new JList<>(priorityListModel);
+        priorityList.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+        // Fixed row height, so lists with thousands of entries aren't measured row by row.
+        priorityList.setPrototypeCellValue("Xxxxxxxxxxxxxxxxxxxxxxxxx");
         priorityPanel.add(new JScrollPane(priorityList), BorderLayout.CENTER);
 
         JPanel editPanel = new JPanel();
         editPanel.setLayout(new BoxLayout(editPanel, BoxLayout.Y_AXIS));
         newDropField = new JTextField();
         newDropField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 25));
+        newDropField.setToolTipText("Start typing an item name; press Enter or Add to add it");
+        newDropField.getDocument().addDocumentListener(onDocumentChange(this::updateSuggestions));
+        newDropField.addActionListener(e -> addPriorityDrop());
         editPanel.add(newDropField);
+
+        JList<String> suggestionList = new JList<>(suggestionModel);
+        suggestionList.setVisibleRowCount(5);
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionList.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int index = suggestionList.locationToIndex(e.getPoint());
+                if (index < 0) return;
+                newDropField.setText(suggestionModel.get(index));
+                if (e.getClickCount() == 2) addPriorityDrop();
+                else newDropField.requestFocusInWindow();
+            }
+        });
+        suggestionScroll = new JScrollPane(suggestionList);
+        suggestionScroll.setMaximumSize(new Dimension(Integer.MAX_VALUE, 100));
+        suggestionScroll.setVisible(false);
+        editPanel.add(suggestionScroll);
         editPanel.add(Box.createVerticalStrut(5));
 
-        JPanel buttons = new JPanel(new GridLayout(1, 2, 5, 0));
-        addDropButton = new JButton("Add");
-        removeDropButton = new JButton("Remove");
+        JPanel buttons = new JPanel(new GridLayout(2, 2, 5, 5));
+        JButton addDropButton = new JButton("Add");
+        JButton removeDropButton = new JButton("Remove");
+        JButton importDropsButton = new JButton("Import");
+        JButton exportDropsButton = new JButton("Export");
+        removeDropButton.setToolTipText("Remove every selected item");
+        importDropsButton.setToolTipText("Read item names from a text file, one per line");
+        exportDropsButton.setToolTipText("Write the list to a text file, one item per line");
         buttons.add(addDropButton);
         buttons.add(removeDropButton);
+        buttons.add(importDropsButton);
+        buttons.add(exportDropsButton);
         editPanel.add(buttons);
+        priorityStatus = new JLabel(" ");
+        editPanel.add(priorityStatus);
         priorityPanel.add(editPanel, BorderLayout.SOUTH);
 
         addDropButton.addActionListener(e -> addPriorityDrop());
-        removeDropButton.addActionListener(e -> removeSelectedDrop(priorityList));
-        priorityPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 200));
-        add(priorityPanel);
-        add(Box.createVerticalStrut(10));
+        removeDropButton.addActionListener(e -> removeSelectedDrops(priorityList));
+        importDropsButton.addActionListener(e -> importPriorityDrops());
+        exportDropsButton.addActionListener(e -> exportPriorityDrops());
+        priorityPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 360));
+        sections.add(priorityPanel);
+        sections.add(Box.createVerticalStrut(10));
+
+        // Webhook Routes Panel
+        JPanel routesPanel = new JPanel(new BorderLayout(5, 5));
+        routesPanel.setBorder(BorderFactory.createTitledBorder("Webhook Routes"));
+        routesPanel.setToolTipText("Send matching notifications to other webhooks; unmatched ones use the webhook above");
+        JList<String> routeList = new JList<>(routeListModel);
+        routesPanel.add(new JScrollPane(routeList), BorderLayout.CENTER);
+
+        JPanel routeEditPanel = new JPanel(new GridLayout(0, 1, 5, 5));
+        routeCategoryBox = new JComboBox<>(WebhookRoute.Category.values());
+        routeItemField = new JTextField();
+        routeItemField.setToolTipText("Item name to match (optional)");
+        routeNpcField = new JTextField();
+        routeNpcField.setToolTipText("NPC name to match (optional)");
+        routeWebhooksField = new JTextField();
+        routeWebhooksField.setToolTipText("Webhook URLs, separated by commas");
+        routeEditPanel.add(routeCategoryBox);
+        routeEditPanel.add(routeItemField);
+        routeEditPanel.add(routeNpcField);
+        routeEditPanel.add(routeWebhooksField);
+
+        JPanel routeButtons = new JPanel(new GridLayout(1, 2, 5, 0));
+        JButton addRouteButton = new JButton("Add");
+        JButton removeRouteButton = new JButton("Remove");
+        routeButtons.add(addRouteButton);
+        routeButtons.add(removeRouteButton);
+        routeEditPanel.add(routeButtons);
+        routesPanel.add(routeEditPanel, BorderLayout.SOUTH);
+
+        addRouteButton.addActionListener(e -> addWebhookRoute());
+        removeRouteButton.addActionListener(e -> removeSelectedRoute(routeList));
+        routesPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 280));
+        sections.add(routesPanel);
+        sections.add(Box.createVerticalStrut(10));
 
         // Loot Feed Panel
         JPanel lootPanel = new JPanel(new BorderLayout());
         lootPanel.setBorder(BorderFactory.createTitledBorder("Loot Feed"));
-        lootListModel = new DefaultListModel<>();
-        lootList = new JList<>(lootListModel);
+        JList<String> lootList = new JList<>(lootListModel);
+        // Fixed row metrics, so the list never formats every entry just to measure it.
+        lootList.setPrototypeCellValue("[00:00:00] 0000x Xxxxxxxxxxxxxxxxxxxx from Xxxxxxxxxxxxxxx");
+        lootListModel.setOnFlush(() -> lootList.ensureIndexIsVisible(lootListModel.getSize() - 1));
         lootPanel.add(new JScrollPane(lootList), BorderLayout.CENTER);
         lootPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 200));
-        add(lootPanel);
+        sections.add(lootPanel);
+        sections.add(Box.createVerticalStrut(10));
+
+        // Loot History Panel
+        JPanel historyPanel = new JPanel(new BorderLayout(5, 5));
+        historyPanel.setBorder(BorderFactory.createTitledBorder("Loot History"));
+        JPanel queryPanel = new JPanel(new GridLayout(0, 1, 5, 5));
+        historyQueryBox = new JComboBox<>(new String[]{HISTORY_BY_NPC, HISTORY_ITEM_TOTAL, HISTORY_LAST_DAYS});
+        historyField = new JTextField();
+        historyField.setToolTipText("NPC name, item name or number of days");
+        JButton searchButton = new JButton("Search");
+        searchButton.addActionListener(e -> searchHistory());
+        historyField.addActionListener(e -> searchHistory());
+        queryPanel.add(historyQueryBox);
+        queryPanel.add(historyField);
+        queryPanel.add(searchButton);
+        historyPanel.add(queryPanel, BorderLayout.NORTH);
+        historyResults = new JTextArea(6, 0);
+        historyResults.setEditable(false);
+        historyResults.setLineWrap(true);
+        historyPanel.add(new JScrollPane(historyResults), BorderLayout.CENTER);
+        historyPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 250));
+        sections.add(historyPanel);
+        sections.add(Box.createVerticalStrut(10));
+
+        // Drop Statistics Panel
+        JPanel statisticsPanel = new JPanel(new BorderLayout(5, 5));
+        statisticsPanel.setBorder(BorderFactory.createTitledBorder("Drop Statistics"));
+        statisticsText = new JTextArea(6, 0);
+        statisticsText.setEditable(false);
+        statisticsPanel.add(new JScrollPane(statisticsText), BorderLayout.CENTER);
+        refreshStatistics();
+        JButton refreshStatisticsButton = new JButton("Refresh");
+        refreshStatisticsButton.addActionListener(e -> refreshStatistics());
+        statisticsPanel.add(refreshStatisticsButton, BorderLayout.SOUTH);
+        statisticsPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 200));
+        sections.add(statisticsPanel);
+        sections.add(Box.createVerticalStrut(10));
+
+        // Metrics Panel, collapsed until opened
+        JPanel metricsPanel = new JPanel(new BorderLayout(5, 5));
+        JToggleButton metricsToggle = new JToggleButton("Show Metrics");
+        JPanel metricsContent = new JPanel(new BorderLayout(5, 5));
+        metricsText = new JTextArea(10, 0);
+        metricsText.setEditable(false);
+        metricsContent.add(new JScrollPane(metricsText), BorderLayout.CENTER);
+        JButton dumpMetricsButton = new JButton("Dump to File");
+        dumpMetricsButton.addActionListener(e -> dumpMetrics());
+        metricsContent.add(dumpMetricsButton, BorderLayout.SOUTH);
+        metricsContent.setVisible(false);
+        metricsPanel.add(metricsToggle, BorderLayout.NORTH);
+        metricsPanel.add(metricsContent, BorderLayout.CENTER);
+        metricsPanel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 260));
+        sections.add(metricsPanel);
+
+        // Only poll the counters while the section is open.
+        Timer metricsRefreshTimer = new Timer(1000, e -> refreshMetrics());
+        metricsToggle.addActionListener(e -> {
+            boolean open = metricsToggle.isSelected();
+            metricsToggle.setText(open ? "Hide Metrics" : "Show Metrics");
+            metricsContent.setVisible(open);
+            if (open) {
+                refreshMetrics();
+                metricsRefreshTimer.start();
+            } else {
+                metricsRefreshTimer.stop();
+            }
+            revalidate();
+        });
+
+        add(sections);
+        revalidate();
+    }
+
+    private static DocumentListener onDocumentChange(Runnable onChange) {
+        return new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                onChange.run();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                onChange.run();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                onChange.run();
+            }
+        };
+    }
+
+    private void onSettingsEdited() {
+        if (settings == null || applyingSettings) return;
+        publishSnapshot();
+        settingsStore.scheduleSave(settings);
+    }
+
+    private void publishSnapshot() {
+        updateSettingsFromUI();
+        snapshot = LootSettingsSnapshot.of(settings, snapshot);
+
+        List<String> errors = snapshot.getLootRules().getErrors();
+        lootRulesStatus.setText(errors.isEmpty() ? snapshot.getLootRules().size() + " rules active" : errors.get(0));
+        lootRulesStatus.setToolTipText(errors.isEmpty() ? null : String.join("\n", errors));
+    }
+
+    void setItemNames(ItemNameIndex itemNames) {
+        this.itemNames = itemNames;
+    }
+
+    private void updateSuggestions() {
+        ItemNameIndex names = itemNames;
+        List<String> matches = List.of();
+        if (names != null) {
+            if (priorityLookup == null) priorityLookup = names.lookup();
+            matches = priorityLookup.complete(newDropField.getText().stripLeading(), SUGGESTION_LIMIT);
+        }
+        suggestionModel.clear();
+        suggestionModel.addAll(matches);
+        if (suggestionScroll.isVisible() != !matches.isEmpty()) {
+            suggestionScroll.setVisible(!matches.isEmpty());
+            revalidate();
+        }
     }
 
     private void addPriorityDrop() {
-        String drop = newDropField.getText().trim();
-        if (!drop.isEmpty() && !settings.priorityDrops.contains(drop.toLowerCase())) {
-            settings.priorityDrops.add(drop.toLowerCase());
-            priorityListModel.addElement(drop);
-            newDropField.setText("");
+        String typed = newDropField.getText().trim();
+        if (settings == null || typed.isEmpty()) return;
+
+        String drop = typed;
+        ItemNameIndex names = itemNames;
+        if (names != null && names.isLoaded()) {
+            // Only real item names, since anything else would never match a drop.
+            drop = names.canonicalName(typed);
+            if (drop == null) {
+                priorityStatus.setText("No item is called \"" + typed + "\"");
+                return;
+            }
+            priorityStatus.setText(" ");
+        } else {
+            priorityStatus.setText("Item names are still loading, added without checking");
+        }
+        String key = drop.toLowerCase(Locale.ROOT);
+        if (settings.priorityDrops.stream().anyMatch(existing -> existing.toLowerCase(Locale.ROOT).equals(key))) {
+            priorityStatus.setText(drop + " is already in the list");
+            return;
+        }
+        settings.priorityDrops.add(drop);
+        priorityListModel.addElement(drop);
+        newDropField.setText("");
+        onSettingsEdited();
+    }
+
+    private void removeSelectedDrops(JList<String> list) {
+        int[] selected = list.getSelectedIndices();
+        if (settings == null || selected.length == 0) return;
+
+        if (selected.length == 1) {
+            String key = priorityListModel.get(selected[0]).toLowerCase(Locale.ROOT);
+            settings.priorityDrops.removeIf(drop -> drop.toLowerCase(Locale.ROOT).equals(key));
+            priorityListModel.remove(selected[0]);
+        } else {
+            Set<String> removed = new HashSet<>();
+            for (int index : selected) {
+                removed.add(priorityListModel.get(index).toLowerCase(Locale.ROOT));
+            }
+            settings.priorityDrops.removeIf(drop -> removed.contains(drop.toLowerCase(Locale.ROOT)));
+            // One model event instead of one per removed row.
+            List<String> kept = new ArrayList<>(priorityListModel.size() - selected.length);
+            for (int i = 0; i < priorityListModel.size(); i++) {
+                String drop = priorityListModel.get(i);
+                if (!removed.contains(drop.toLowerCase(Locale.ROOT))) kept.add(drop);
+            }
+            priorityListModel.clear();
+            priorityListModel.addAll(kept);
+        }
+        onSettingsEdited();
+    }
+
+    private static final class PriorityImport {
+        final List<String> items = new ArrayList<>();
+        final List<String> unknown = new ArrayList<>();
+    }
+
+    private void importPriorityDrops() {
+        if (settings == null) return;
+        ItemNameIndex names = itemNames;
+        if (names == null || !names.isLoaded()) {
+            priorityStatus.setText("Item names are still loading, try again in a moment");
+            return;
+        }
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        int choice = JOptionPane.showConfirmDialog(this,
+                "Replace the current priority list?\nChoose No to add the imported items to it.",
+                "Import Priority Drops", JOptionPane.YES_NO_CANCEL_OPTION);
+        if (choice != JOptionPane.YES_OPTION && choice != JOptionPane.NO_OPTION) return;
+        boolean replace = choice == JOptionPane.YES_OPTION;
+        Path file = chooser.getSelectedFile().toPath();
+
+        priorityStatus.setText("Importing...");
+        CompletableFuture.supplyAsync(() -> readPriorityFile(file, names)).whenComplete((result, error) ->
+                SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        priorityStatus.setText("Import failed: " + cause.getMessage());
+                    } else {
+                        applyPriorityImport(result, replace);
+                    }
+                }));
+    }
+
+    // One item name per line; blank lines and lines starting with # are skipped.
+    private static PriorityImport readPriorityFile(Path file, ItemNameIndex names) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        PriorityImport result = new PriorityImport();
+        Set<String> seen = new HashSet<>();
+        for (String line : lines) {
+            String name = line.trim();
+            if (name.isEmpty() || name.startsWith("#")) continue;
+            String canonical = names.canonicalName(name);
+            if (canonical == null) {
+                result.unknown.add(name);
+            } else if (seen.add(canonical.toLowerCase(Locale.ROOT))) {
+                result.items.add(canonical);
+            }
+        }
+        return result;
+    }
+
+    private void applyPriorityImport(PriorityImport result, boolean replace) {
+        if (settings == null) return;
+        Map<String, String> merged = new LinkedHashMap<>();
+        if (!replace) {
+            for (int i = 0; i < priorityListModel.size(); i++) {
+                String drop = priorityListModel.get(i);
+                merged.put(drop.toLowerCase(Locale.ROOT), drop);
+            }
+        }
+        int before = merged.size();
+        for (String item : result.items) {
+            merged.putIfAbsent(item.toLowerCase(Locale.ROOT), item);
+        }
+
+        settings.priorityDrops = new ArrayList<>(merged.values());
+        priorityListModel.clear();
+        priorityListModel.addAll(merged.values());
+        onSettingsEdited();
+
+        String status = "Imported " + (merged.size() - before) + " item(s)";
+        if (result.unknown.isEmpty()) {
+            priorityStatus.setText(status);
+            priorityStatus.setToolTipText(null);
+        } else {
+            priorityStatus.setText(status + ", skipped " + result.unknown.size() + " unknown");
+            List<String> shown = result.unknown.subList(0, Math.min(UNKNOWN_ITEMS_SHOWN, result.unknown.size()));
+            priorityStatus.setToolTipText("<html>Not item names:<br>" + String.join("<br>", escapeHtml(shown))
+                    + (shown.size() < result.unknown.size() ? "<br>..." : "") + "</html>");
+        }
+    }
+
+    private static List<String> escapeHtml(List<String> lines) {
+        List<String> escaped = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            escaped.add(line.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;"));
+        }
+        return escaped;
+    }
+
+    private void exportPriorityDrops() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        List<String> drops = Collections.list(priorityListModel.elements());
+
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                Files.write(file, drops, StandardCharsets.UTF_8);
+                return "Exported " + drops.size() + " item(s)";
+            } catch (IOException e) {
+                e.printStackTrace();
+                return "Export failed: " + e.getMessage();
+            }
+        }).thenAccept(message -> SwingUtilities.invokeLater(() -> priorityStatus.setText(message)));
+    }
+
+    private void addWebhookRoute() {
+        if (settings == null) return;
+        WebhookRoute route = new WebhookRoute();
+        route.category = (WebhookRoute.Category) routeCategoryBox.getSelectedItem();
+        route.itemName = routeItemField.getText().trim();
+        route.npcName = routeNpcField.getText().trim();
+        for (String url : routeWebhooksField.getText().split(",")) {
+            if (!url.isBlank()) route.webhookUrls.add(url.trim());
         }
+        if (route.webhookUrls.isEmpty()) return;
+
+        settings.webhookRoutes.add(route);
+        routeListModel.addElement(route.describe());
+        routeItemField.setText("");
+        routeNpcField.setText("");
+        routeWebhooksField.setText("");
+        onSettingsEdited();
     }
 
-    private void removeSelectedDrop(JList<String> list) {
+    private void removeSelectedRoute(JList<String> list) {
         int selected = list.getSelectedIndex();
-        if (selected != -1) {
-            String drop = priorityListModel.get(selected);
-            settings.priorityDrops.remove(drop.toLowerCase());
-            priorityListModel.remove(selected);
+        if (settings != null && selected != -1) {
+            settings.webhookRoutes.remove(selected);
+            routeListModel.remove(selected);
+            onSettingsEdited();
         }
     }
 
-    public void addLootFeed(String itemName, String npcName) {
-        String time = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-        String entry = "[" + time + "] " + itemName + " from " + npcName;
-        SwingUtilities.invokeLater(() -> {
-            lootListModel.addElement(entry);
-            lootList.ensureIndexIsVisible(lootListModel.getSize() - 1);
-        });
+    public void addLootFeed(int itemId, String itemName, String npcName, int quantity) {
+        lootListModel.addItem(System.currentTimeMillis(), itemId, itemName, npcName, quantity);
     }
 
     public void addLootFeedForPet(String gameMessage) {
-        String time = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-        String entry = "[" + time + "] " + gameMessage;
-        SwingUtilities.invokeLater(() -> {
-            lootListModel.addElement(entry);
-            lootList.ensureIndexIsVisible(lootListModel.getSize() - 1);
-        });
+        lootListModel.addMessage(System.currentTimeMillis(), gameMessage);
+    }
+
+    void setMetrics(PipelineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void refreshMetrics() {
+        if (metrics != null) metricsText.setText(metrics.describe());
+    }
+
+    private void dumpMetrics() {
+        PipelineMetrics current = metrics;
+        if (current == null) return;
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return "Metrics written to " + current.dump(NpcDropDiscordPlugin.PLUGIN_DIR);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return "Failed to write metrics: " + e.getMessage();
+            }
+        }).thenAccept(message -> SwingUtilities.invokeLater(() ->
+                JOptionPane.showMessageDialog(this, message)));
+    }
+
+    void setStatistics(DropStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    private void refreshStatistics() {
+        DropStatistics current = statistics;
+        if (current != null) statisticsText.setText(current.describe());
+    }
+
+    void setHistoryStore(LootHistoryStore historyStore) {
+        this.historyStore = historyStore;
+    }
+
+    private void searchHistory() {
+        String query = historyField.getText().trim();
+        LootHistoryStore store = historyStore;
+        if (store == null || query.isEmpty()) return;
+
+        CompletableFuture<String> result;
+        Object type = historyQueryBox.getSelectedItem();
+        if (HISTORY_ITEM_TOTAL.equals(type)) {
+            result = store.totalQuantity(query).thenApply(total -> "Total " + query + ": " + total);
+        } else if (HISTORY_LAST_DAYS.equals(type)) {
+            long days;
+            try {
+                days = Long.parseLong(query);
+            } catch (NumberFormatException e) {
+                historyResults.setText("Enter a number of days.");
+                return;
+            }
+            long from = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days);
+            result = store.since(from, HISTORY_RESULT_LIMIT).thenApply(DiscordLootPanel::formatHistory);
+        } else {
+            result = store.dropsFrom(query, HISTORY_RESULT_LIMIT).thenApply(DiscordLootPanel::formatHistory);
+        }
+
+        historyResults.setText("Searching...");
+        result.whenComplete((text, error) -> SwingUtilities.invokeLater(() ->
+                historyResults.setText(error != null ? "History unavailable: " + error.getMessage() : text)));
+    }
+
+    private static String formatHistory(List<LootRecord> records) {
+        if (records.isEmpty()) return "No drops found.";
+        StringBuilder text = new StringBuilder();
+        for (LootRecord record : records) {
+            text.append('[').append(HISTORY_TIME_FORMAT.format(Instant.ofEpochMilli(record.getTimestamp()))).append("] ")
+                    .append(record.getQuantity()).append("x ").append(record.getItemName())
+                    .append(" from ").append(record.getNpcName()).append('\n');
+        }
+        if (records.size() >= HISTORY_RESULT_LIMIT) text.append("Showing the newest ").append(HISTORY_RESULT_LIMIT).append(" only.");
+        return text.toString();
     }
 
     private void sendTestNotification() {
@@ -183,34 +758,46 @@ public class DiscordLootPanel extends PluginPanel {
             NpcDropDiscordPlugin.showTrayNotification("Test", 1);
 
         if (soundCheckBox.isSelected())
-            Toolkit.getDefaultToolkit().beep();
+            NpcDropDiscordPlugin.playTestSound(SoundEngine.Tier.PRIORITY);
 
-        addLootFeed("TestItem", "TestNPC");
+        addLootFeed(0, "TestItem", "TestNPC", 1);
     }
 
+    /** Writes the current settings synchronously; used on shutdown. */
     public void saveSettings() {
+        if (settings == null) return;
         updateSettingsFromUI();
-        try (Writer writer = Files.newBufferedWriter(settingsFile)) {
-            gson.toJson(settings, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        settingsStore.saveNow(settings);
     }
 
-    public void loadSettings() {
-        if (Files.exists(settingsFile)) {
-            try (Reader reader = Files.newBufferedReader(settingsFile)) {
-                settings = gson.fromJson(reader, DiscordLootSettings.class);
-            } catch (IOException e) {
-                e.printStackTrace();
-                settings = new DiscordLootSettings();
-            }
-        } else {
-            settings = new DiscordLootSettings();
-        }
+    /**
+     * Reads settings in the background, then applies them to the panel on the EDT, where the
+     * returned future completes. Nothing blocks on the EDT, so it's safe to shut down from there.
+     */
+    public CompletableFuture<LootSettingsSnapshot> loadSettings() {
+        return settingsStore.load().thenCompose(loaded -> {
+            CompletableFuture<LootSettingsSnapshot> applied = new CompletableFuture<>();
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    settings = loaded;
+                    applySettingsToUI();
+                    applied.complete(snapshot);
+                } catch (RuntimeException e) {
+                    applied.completeExceptionally(e);
+                }
+            });
+            return applied;
+        });
+    }
+
+    /** Queues a last save and stops the settings store, without waiting for the write. */
+    void closeSettingsStore() {
+        if (settings != null) updateSettingsFromUI();
+        settingsStore.shutdown(settings);
     }
 
     void applySettingsToUI() {
+        applyingSettings = true;
         webhookField.setText(settings.webhookUrl);
         discordCheckBox.setSelected(settings.discordEnabled);
         pmCheckBox.setSelected(settings.pmEnabled);
@@ -219,11 +806,35 @@ public class DiscordLootPanel extends PluginPanel {
         petCheckBox.setSelected(settings.petsEnabled);
         fortuneCheckBox.setSelected(settings.fortuneEnabled);
         slayerCheckBox.setSelected(settings.slayerEnabled);
-
+        broadcastCheckBox.setSelected(settings.broadcastsEnabled);
+        digestCheckBox.setSelected(settings.digestEnabled);
+        screenshotCheckBox.setSelected(settings.screenshotsEnabled);
+        sharedDispatchCheckBox.setSelected(settings.sharedDispatchEnabled);
+        valueCheckBox.setSelected(settings.valueNotificationsEnabled);
+        minimumValueField.setText(Long.toString(settings.minimumValue));
+        soundFileFields[SoundEngine.Tier.PRIORITY.ordinal()].setText(settings.prioritySoundFile);
+        soundFileFields[SoundEngine.Tier.FORTUNE.ordinal()].setText(settings.fortuneSoundFile);
+        soundFileFields[SoundEngine.Tier.PET.ordinal()].setText(settings.petSoundFile);
+        soundFileFields[SoundEngine.Tier.VALUE.ordinal()].setText(settings.valueSoundFile);
+        lootRulesArea.setText(String.join("\n", settings.lootRules));
+
+        lootListModel.setCapacity(settings.lootFeedCapacity);
+
+        // Older settings files hold lowercased names; they're respelled as the game does once it's known.
+        ItemNameIndex names = itemNames;
+        boolean canonicalize = names != null && names.isLoaded();
         priorityListModel.clear();
-        for (String drop : settings.priorityDrops) {
-            priorityListModel.addElement(drop);
+        for (int i = 0; i < settings.priorityDrops.size(); i++) {
+            String canonical = canonicalize ? names.canonicalName(settings.priorityDrops.get(i)) : null;
+            if (canonical != null) settings.priorityDrops.set(i, canonical);
+            priorityListModel.addElement(settings.priorityDrops.get(i));
         }
+        routeListModel.clear();
+        for (WebhookRoute route : settings.webhookRoutes) {
+            routeListModel.addElement(route.describe());
+        }
+        applyingSettings = false;
+        publishSnapshot();
     }
 
     private void updateSettingsFromUI() {
@@ -235,46 +846,60 @@ public class DiscordLootPanel extends PluginPanel {
         settings.petsEnabled = petCheckBox.isSelected();
         settings.fortuneEnabled = fortuneCheckBox.isSelected();
         settings.slayerEnabled = slayerCheckBox.isSelected();
-        // settings.priorityDrops already updated by add/remove methods
+        settings.broadcastsEnabled = broadcastCheckBox.isSelected();
+        settings.digestEnabled = digestCheckBox.isSelected();
+        settings.screenshotsEnabled = screenshotCheckBox.isSelected();
+        settings.sharedDispatchEnabled = sharedDispatchCheckBox.isSelected();
+        settings.valueNotificationsEnabled = valueCheckBox.isSelected();
+        settings.prioritySoundFile = soundFileFields[SoundEngine.Tier.PRIORITY.ordinal()].getText().trim();
+        settings.fortuneSoundFile = soundFileFields[SoundEngine.Tier.FORTUNE.ordinal()].getText().trim();
+        settings.petSoundFile = soundFileFields[SoundEngine.Tier.PET.ordinal()].getText().trim();
+        settings.valueSoundFile = soundFileFields[SoundEngine.Tier.VALUE.ordinal()].getText().trim();
+        settings.lootRules = new ArrayList<>(Arrays.asList(lootRulesArea.getText().split("\n", -1)));
+        while (!settings.lootRules.isEmpty() && settings.lootRules.get(settings.lootRules.size() - 1).isBlank()) {
+            settings.lootRules.remove(settings.lootRules.size() - 1);
+        }
+        try {
+            settings.minimumValue = Math.max(0, Long.parseLong(minimumValueField.getText().trim().replace(",", "")));
+        } catch (NumberFormatException e) {
+            // Keep the previous threshold while the field holds something that isn't a number.
+        }
+        // settings.priorityDrops and settings.webhookRoutes already updated by add/remove methods
     }
 
-    public void playSound() {
-        Toolkit.getDefaultToolkit().beep();
+    public LootSettingsSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public String getWebhookUrl() {
-        return webhookField.getText();
+        return snapshot.getWebhookUrl();
     }
 
     public boolean isDiscordEnabled() {
-        return discordCheckBox.isSelected();
+        return snapshot.isDiscordEnabled();
     }
 
     public boolean isPmEnabled() {
-        return pmCheckBox.isSelected();
+        return snapshot.isPmEnabled();
     }
 
     public boolean isTrayEnabled() {
-        return trayCheckBox.isSelected();
+        return snapshot.isTrayEnabled();
     }
 
     public boolean isSoundEnabled() {
-        return soundCheckBox.isSelected();
+        return snapshot.isSoundEnabled();
     }
 
     public boolean isFortuneEnabled() {
-        return fortuneCheckBox.isSelected();
+        return snapshot.isFortuneEnabled();
     }
 
     public boolean isPetsEnabled() {
-        return petCheckBox.isSelected();
+        return snapshot.isPetsEnabled();
     }
 
     public boolean isSlayerEnabled() {
-        return slayerCheckBox.isSelected();
-    }
-
-    public List<String> getPriorityDrops() {
-        return List.copyOf(settings.priorityDrops);
+        return snapshot.isSlayerEnabled();
     }
 }
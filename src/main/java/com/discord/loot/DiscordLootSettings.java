@@ -3,14 +3,62 @@ package com.discord.loot;
 import java.util.ArrayList;
 import java.util.List;
 
-public class DiscordLootSettings {
+public class DiscordLootSettings implements Cloneable {
     public String webhookUrl = "";
     public boolean discordEnabled = true;
     public boolean pmEnabled = true;
     public boolean trayEnabled = true;
     public boolean soundEnabled = true;
+    // WAV files per sound tier; empty plays the built-in tone.
+    public String prioritySoundFile = "";
+    public String fortuneSoundFile = "";
+    public String petSoundFile = "";
+    public String valueSoundFile = "";
     public boolean petsEnabled = true;
     public boolean fortuneEnabled = true;
     public boolean slayerEnabled = true;
+    public boolean broadcastsEnabled = false;
+    public boolean digestEnabled = false;
+    public int digestIntervalMinutes = 60;
+    public boolean screenshotsEnabled = false;
+    public boolean valueNotificationsEnabled = false;
+    public long minimumValue = 1_000_000;
+    public int priceRefreshMinutes = 60;
     public List<String> priorityDrops = new ArrayList<>();
+    public List<String> chatTriggers = new ArrayList<>();
+    public List<String> lootRules = new ArrayList<>();
+    public List<WebhookRoute> webhookRoutes = new ArrayList<>();
+    public int webhookConnectTimeoutSeconds = 5;
+    public int webhookRequestTimeoutSeconds = 10;
+    public int webhookMaxInFlight = 4;
+    // Clients on one machine hand notifications to whichever of them owns this loopback port.
+    public boolean sharedDispatchEnabled = false;
+    public int sharedDispatchPort = 47391;
+    public int trayMinIntervalSeconds = 3;
+    public int dedupWindowTicks = 2;
+    public int lootFeedCapacity = 500;
+
+    /** A copy sharing nothing mutable with this one, so it can be serialized on another thread. */
+    DiscordLootSettings copy() {
+        DiscordLootSettings copy;
+        try {
+            copy = (DiscordLootSettings) clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+        copy.priorityDrops = copyOf(priorityDrops);
+        copy.chatTriggers = copyOf(chatTriggers);
+        copy.lootRules = copyOf(lootRules);
+        if (webhookRoutes != null) {
+            copy.webhookRoutes = new ArrayList<>(webhookRoutes.size());
+            for (WebhookRoute route : webhookRoutes) {
+                copy.webhookRoutes.add(route == null ? null : route.copy());
+            }
+        }
+        return copy;
+    }
+
+    private static <T> List<T> copyOf(List<T> list) {
+        return list == null ? null : new ArrayList<>(list);
+    }
 }
\ No newline at end of file
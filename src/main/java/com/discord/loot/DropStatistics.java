@@ -0,0 +1,153 @@
+package com.discord.loot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Kill and drop counters per NPC, kept in primitive maps so recording a drop never boxes.
+ * Observed drop rates and dry streaks are derived on read. A second set of counters covers
+ * only the current digest period and is reset each time a digest is taken.
+ */
+final class DropStatistics {
+    private static final int MAX_DIGEST_DROPS = 15;
+    private static final int MAX_DIGEST_LINES = 10;
+    // Discord rejects embeds with a longer description.
+    static final int MAX_DESCRIPTION_LENGTH = 4096;
+    private static final String TRUNCATED = "... (truncated)";
+
+    private final Map<String, NpcStats> npcs = new HashMap<>();
+    private final IntLongHashMap dropsByItem = new IntLongHashMap(256);
+    // Names of items that were ever notable, for rate and dry-streak lines.
+    private final Map<Integer, String> notableNames = new HashMap<>();
+    private final List<String> periodDrops = new ArrayList<>();
+    private int periodDropOverflow;
+
+    synchronized void recordKill(String npcName, int kills) {
+        NpcStats stats = npcs.computeIfAbsent(npcName, NpcStats::new);
+        stats.kills += kills;
+        stats.periodKills += kills;
+    }
+
+    synchronized void recordDrop(String npcName, int itemId, int quantity) {
+        NpcStats stats = npcs.computeIfAbsent(npcName, NpcStats::new);
+        stats.drops.addTo(itemId, 1);
+        stats.lastDropKill.put(itemId, stats.kills);
+        dropsByItem.addTo(itemId, quantity);
+    }
+
+    /** Marks a drop as notable so it shows up in the next digest. Call after {@link #recordDrop}. */
+    synchronized void recordNotable(String npcName, int itemId, String itemName, int quantity) {
+        notableNames.putIfAbsent(itemId, itemName);
+        if (periodDrops.size() < MAX_DIGEST_DROPS) {
+            periodDrops.add(quantity + "x " + itemName + " (" + npcName + ")");
+        } else {
+            periodDropOverflow++;
+        }
+    }
+
+    synchronized long getKills(String npcName) {
+        NpcStats stats = npcs.get(npcName);
+        return stats == null ? 0 : stats.kills;
+    }
+
+    synchronized long getTotalDropped(int itemId) {
+        return dropsByItem.get(itemId, 0);
+    }
+
+    /** Fraction of kills of {@code npcName} that dropped {@code itemId}, or 0 if never killed. */
+    synchronized double getDropRate(String npcName, int itemId) {
+        NpcStats stats = npcs.get(npcName);
+        if (stats == null || stats.kills == 0) return 0;
+        return (double) stats.drops.get(itemId, 0) / stats.kills;
+    }
+
+    /** Kills of {@code npcName} since {@code itemId} last dropped (or since tracking began). */
+    synchronized long getDryStreak(String npcName, int itemId) {
+        NpcStats stats = npcs.get(npcName);
+        if (stats == null) return 0;
+        return stats.kills - stats.lastDropKill.get(itemId, 0);
+    }
+
+    /** Session-wide summary of kills, rates and dry streaks for notable items. */
+    synchronized String describe() {
+        if (npcs.isEmpty()) return "No kills recorded yet.";
+        StringBuilder text = new StringBuilder();
+        for (NpcStats stats : npcs.values()) {
+            text.append(stats.name).append(": ").append(stats.kills).append(" kills\n");
+            appendNotableRates(text, stats, "  ");
+        }
+        return text.toString();
+    }
+
+    /**
+     * Builds the digest for the period since the last call and starts a new period, or returns
+     * null if nothing was killed in between.
+     */
+    synchronized DiscordEmbed takeDigest() {
+        StringBuilder kills = new StringBuilder();
+        StringBuilder rates = new StringBuilder();
+        int lines = 0;
+        for (NpcStats stats : npcs.values()) {
+            if (stats.periodKills == 0) continue;
+            if (lines++ < MAX_DIGEST_LINES) {
+                kills.append(stats.name).append(": ").append(stats.periodKills)
+                        .append(" (").append(stats.kills).append(" total)\n");
+                appendNotableRates(rates, stats, "");
+            }
+            stats.periodKills = 0;
+        }
+        if (lines == 0) return null;
+        if (lines > MAX_DIGEST_LINES) kills.append("and ").append(lines - MAX_DIGEST_LINES).append(" more\n");
+
+        StringBuilder description = new StringBuilder("**Kills**\n").append(kills);
+        if (!periodDrops.isEmpty()) {
+            description.append("\n**Notable drops**\n");
+            for (String drop : periodDrops) {
+                description.append(drop).append('\n');
+            }
+            if (periodDropOverflow > 0) description.append("and ").append(periodDropOverflow).append(" more\n");
+        }
+        if (rates.length() > 0) {
+            description.append("\n**Rates**\n").append(rates);
+        }
+        periodDrops.clear();
+        periodDropOverflow = 0;
+        return new DiscordEmbed("Loot Digest", fitDescription(description), DiscordEmbed.COLOR_GREEN);
+    }
+
+    // Cuts at the last whole line that fits, so a long rates section can't get the digest rejected.
+    private static String fitDescription(StringBuilder description) {
+        if (description.length() <= MAX_DESCRIPTION_LENGTH) return description.toString();
+        int end = description.lastIndexOf("\n", MAX_DESCRIPTION_LENGTH - TRUNCATED.length() - 1);
+        if (end < 0) end = MAX_DESCRIPTION_LENGTH - TRUNCATED.length() - 1;
+        return description.substring(0, end) + "\n" + TRUNCATED;
+    }
+
+    private void appendNotableRates(StringBuilder text, NpcStats stats, String indent) {
+        IntLongHashMap drops = stats.drops;
+        for (int slot = 0; slot < drops.capacity(); slot++) {
+            if (!drops.isUsed(slot)) continue;
+            String itemName = notableNames.get(drops.keyAt(slot));
+            if (itemName == null) continue;
+            long dropped = drops.valueAt(slot);
+            text.append(indent).append(itemName).append(": 1/")
+                    .append(Math.max(1, Math.round((double) stats.kills / dropped)))
+                    .append(", dry ").append(stats.kills - stats.lastDropKill.get(drops.keyAt(slot), 0))
+                    .append('\n');
+        }
+    }
+
+    private static final class NpcStats {
+        final String name;
+        final IntLongHashMap drops = new IntLongHashMap();
+        final IntLongHashMap lastDropKill = new IntLongHashMap();
+        long kills;
+        long periodKills;
+
+        NpcStats(String name) {
+            this.name = name;
+        }
+    }
+}
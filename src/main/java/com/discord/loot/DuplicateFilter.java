@@ -0,0 +1,98 @@
+package com.discord.loot;
+
+import net.runelite.client.game.ItemStack;
+
+import java.util.Collection;
+
+/**
+ * Remembers event fingerprints for a few game ticks, so a {@code LootReceived} fired twice for the
+ * same kill, or a repeated pet message, is dropped on the client thread before it reaches the
+ * pipeline. The table is a fixed array probed over a short window: entries older than the dedup
+ * window count as free, and if a whole window is live its oldest entry is overwritten, so memory
+ * never grows with the number of events.
+ *
+ * <p>Client thread only.
+ */
+final class DuplicateFilter {
+    private static final long EMPTY = 0;
+    private static final int PROBE_LIMIT = 8;
+    private static final long LOOT_SALT = 0x4C4F4F54L;
+    private static final long MESSAGE_SALT = 0x4D534721L;
+
+    private final long[] fingerprints;
+    private final int[] ticks;
+
+    DuplicateFilter(int capacity) {
+        int size = Integer.highestOneBit(Math.max(PROBE_LIMIT, capacity) - 1) << 1;
+        fingerprints = new long[size];
+        ticks = new int[size];
+    }
+
+    /**
+     * Records the event and returns whether the same NPC dropped exactly the same stacks within
+     * {@code windowTicks}. The whole event is the key, so two kills that happen to share a stack are
+     * both kept; only a repeated {@code LootReceived} is caught. Stack order doesn't matter, but
+     * identical stacks count once each.
+     */
+    boolean isRepeatedLoot(String npcName, Collection<ItemStack> items, int tick, int windowTicks) {
+        long stacks = items.size();
+        for (ItemStack item : items) {
+            stacks += mix((long) item.getId() << 32 | item.getQuantity() & 0xFFFFFFFFL);
+        }
+        return seen(mix(hash(npcName, LOOT_SALT) ^ mix(stacks)), tick, windowTicks);
+    }
+
+    /** Records the message and returns whether the same text was seen within {@code windowTicks}. */
+    boolean isRepeatedMessage(String message, int tick, int windowTicks) {
+        return seen(mix(hash(message, MESSAGE_SALT)), tick, windowTicks);
+    }
+
+    private boolean seen(long fingerprint, int tick, int windowTicks) {
+        if (fingerprint == EMPTY) fingerprint = 1;
+        int mask = fingerprints.length - 1;
+        int start = (int) fingerprint & mask;
+        int free = -1;
+        int oldest = start;
+        for (int probe = 0; probe < PROBE_LIMIT; probe++) {
+            int i = (start + probe) & mask;
+            if (fingerprints[i] == EMPTY) {
+                // Entries are never removed, so nothing with this fingerprint lies further on.
+                if (free < 0) free = i;
+                break;
+            }
+            // The tick counter restarts on login, which makes every older entry stale.
+            int age = tick - ticks[i];
+            boolean live = age >= 0 && age <= windowTicks;
+            if (live && fingerprints[i] == fingerprint) return true;
+            if (!live) {
+                if (free < 0) free = i;
+            } else if (ticks[i] - ticks[oldest] < 0) {
+                oldest = i;
+            }
+        }
+        int slot = free >= 0 ? free : oldest;
+        fingerprints[slot] = fingerprint;
+        ticks[slot] = tick;
+        return false;
+    }
+
+    private static long hash(String text, long salt) {
+        long h = salt;
+        if (text != null) {
+            for (int i = 0; i < text.length(); i++) {
+                h = 31 * h + text.charAt(i);
+            }
+        }
+        return mix(h);
+    }
+
+    // Murmur3 finalizer.
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
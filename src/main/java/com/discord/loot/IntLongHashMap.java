@@ -0,0 +1,109 @@
+package com.discord.loot;
+
+import java.util.Arrays;
+
+/** Open-addressed int to long map for counters, avoiding boxed keys and values. */
+final class IntLongHashMap {
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] values;
+    private int size;
+
+    IntLongHashMap() {
+        this(16);
+    }
+
+    IntLongHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(8, expected * 4 / 3) - 1) << 1;
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        values = new long[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long get(int key, long missing) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) return values[i];
+            if (keys[i] == EMPTY) return missing;
+        }
+    }
+
+    void put(int key, long value) {
+        // slot() may grow the table, so it has to run before values is read.
+        int i = slot(key);
+        values[i] = value;
+    }
+
+    long addTo(int key, long delta) {
+        int i = slot(key);
+        return values[i] += delta;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /** Iteration by raw slot: visit {@code 0..capacity()-1} and skip slots where {@link #isUsed} is false. */
+    int capacity() {
+        return keys.length;
+    }
+
+    boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    int keyAt(int slot) {
+        return keys[slot];
+    }
+
+    long valueAt(int slot) {
+        return values[slot];
+    }
+
+    private int slot(int key) {
+        if (key == EMPTY) throw new IllegalArgumentException("Reserved key");
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) return i;
+            i = (i + 1) & mask;
+        }
+        if ((size + 1) * 4 > keys.length * 3) {
+            grow();
+            return slot(key);
+        }
+        keys[i] = key;
+        size++;
+        return i;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        values = new long[keys.length];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
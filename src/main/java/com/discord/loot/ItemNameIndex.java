@@ -0,0 +1,245 @@
+package com.discord.loot;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.client.callback.ClientThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Every item name in the game, for autocompleting and checking priority drops. Names are read from
+ * the client's item definitions a batch per client tick, like {@link ItemPriceTable}, once per
+ * session; the trie is then built on a background thread and published whole, so lookups never
+ * wait for it or see it half built.
+ *
+ * <p>The trie is path-compressed and holds no strings of its own. Names are sorted, so each node
+ * covers a contiguous range of them and its edge label is a slice of the first name in the range;
+ * completing a prefix is a walk to its node and a copy of the start of that range.
+ */
+final class ItemNameIndex {
+    private static final int BATCH_SIZE = 2000;
+    // Retry interval until the first complete load, e.g. when started before login.
+    private static final long CHECK_INTERVAL_SECONDS = 30;
+
+    private final Client client;
+    private final ClientThread clientThread;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ItemNames");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Null until the names have loaded.
+    private volatile Trie trie;
+    private volatile boolean loading;
+
+    ItemNameIndex(Client client, ClientThread clientThread) {
+        this.client = client;
+        this.clientThread = clientThread;
+    }
+
+    void start() {
+        executor.scheduleWithFixedDelay(() -> {
+            if (trie == null && !loading) load();
+        }, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    boolean isLoaded() {
+        return trie != null;
+    }
+
+    /** The item name matching {@code name} ignoring case, or null if there's none or names haven't loaded. */
+    String canonicalName(String name) {
+        Trie current = trie;
+        return current == null ? null : current.canonicalName(name);
+    }
+
+    /** Starts incremental lookups for one text field. */
+    Lookup lookup() {
+        return new Lookup();
+    }
+
+    private void load() {
+        loading = true;
+        clientThread.invokeLater(new BooleanSupplier() {
+            private String[] names;
+            private int nextId;
+
+            // Runs once per client tick until it returns true.
+            @Override
+            public boolean getAsBoolean() {
+                if (names == null) {
+                    if (client.getGameState() != GameState.LOGGED_IN) {
+                        loading = false;
+                        return true;
+                    }
+                    names = new String[client.getItemCount()];
+                }
+                int end = Math.min(names.length, nextId + BATCH_SIZE);
+                for (; nextId < end; nextId++) {
+                    names[nextId] = client.getItemDefinition(nextId).getName();
+                }
+                if (nextId < names.length) return false;
+
+                String[] complete = names;
+                try {
+                    executor.execute(() -> {
+                        trie = new Trie(complete);
+                        loading = false;
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Shut down meanwhile.
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Prefix lookups for one text field, on one thread. Each call reuses the walk for whatever the
+     * text shares with the previous call, so typing a character is one step down the trie and
+     * deleting one is a step back up.
+     */
+    final class Lookup {
+        private Trie walked;
+        private String previous = "";
+        // path[i] is where the first i characters of previous lead; valid up to matched.
+        private Cursor[] path = new Cursor[32];
+        private int matched;
+
+        /** Up to {@code limit} item names starting with {@code text}, ignoring case, in alphabetical order. */
+        List<String> complete(String text, int limit) {
+            Trie current = trie;
+            if (current == null || text.isEmpty()) return List.of();
+            String key = text.toLowerCase(Locale.ROOT);
+            if (current != walked) {
+                walked = current;
+                previous = "";
+                path[0] = current.root;
+                matched = 0;
+            }
+
+            int common = 0;
+            int max = Math.min(Math.min(key.length(), previous.length()), matched);
+            while (common < max && key.charAt(common) == previous.charAt(common)) common++;
+            matched = common;
+            previous = key;
+            if (path.length <= key.length()) path = Arrays.copyOf(path, key.length() * 2);
+
+            while (matched < key.length()) {
+                Cursor next = current.advance(path[matched], key.charAt(matched));
+                if (next == null) return List.of();
+                path[++matched] = next;
+            }
+            return current.names(path[matched].node, limit);
+        }
+    }
+
+    // Where a prefix leads: length characters in, on the edge into node.
+    private static final class Cursor {
+        final Node node;
+        final int length;
+
+        Cursor(Node node, int length) {
+            this.node = node;
+            this.length = length;
+        }
+    }
+
+    private static final class Node {
+        // The range of sorted names under this node, and how many leading characters they all share.
+        final int from;
+        final int to;
+        final int depth;
+        // Children by the character that follows the shared prefix, sorted.
+        char[] labels = new char[0];
+        Node[] children = new Node[0];
+
+        Node(int from, int to, int depth) {
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Trie {
+        final String[] keys;
+        final String[] names;
+        final Cursor root;
+
+        Trie(String[] itemNames) {
+            Map<String, String> byKey = new HashMap<>();
+            for (String name : itemNames) {
+                if (name == null || name.isBlank() || name.equalsIgnoreCase("null")) continue;
+                byKey.putIfAbsent(name.toLowerCase(Locale.ROOT), name);
+            }
+            keys = byKey.keySet().toArray(new String[0]);
+            Arrays.sort(keys);
+            names = new String[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                names[i] = byKey.get(keys[i]);
+            }
+            root = new Cursor(keys.length == 0 ? new Node(0, 0, 0) : build(0, keys.length, 0), 0);
+        }
+
+        private Node build(int from, int to, int start) {
+            // Sorted, so the range's common prefix is that of its first and last key.
+            String first = keys[from];
+            String last = keys[to - 1];
+            int depth = start;
+            int max = Math.min(first.length(), last.length());
+            while (depth < max && first.charAt(depth) == last.charAt(depth)) depth++;
+
+            Node node = new Node(from, to, depth);
+            // A key that ends here sorts first; the rest group by their next character.
+            int i = first.length() == depth ? from + 1 : from;
+            List<Node> children = new ArrayList<>();
+            StringBuilder labels = new StringBuilder();
+            while (i < to) {
+                char label = keys[i].charAt(depth);
+                int j = i + 1;
+                while (j < to && keys[j].charAt(depth) == label) j++;
+                labels.append(label);
+                children.add(build(i, j, depth + 1));
+                i = j;
+            }
+            node.labels = labels.toString().toCharArray();
+            node.children = children.toArray(new Node[0]);
+            return node;
+        }
+
+        Cursor advance(Cursor cursor, char c) {
+            Node node = cursor.node;
+            if (cursor.length < node.depth) {
+                return keys[node.from].charAt(cursor.length) == c ? new Cursor(node, cursor.length + 1) : null;
+            }
+            int child = Arrays.binarySearch(node.labels, c);
+            return child < 0 ? null : new Cursor(node.children[child], cursor.length + 1);
+        }
+
+        List<String> names(Node node, int limit) {
+            int end = Math.min(node.to, node.from + limit);
+            return Arrays.asList(Arrays.copyOfRange(names, node.from, end));
+        }
+
+        String canonicalName(String name) {
+            int index = Arrays.binarySearch(keys, name.trim().toLowerCase(Locale.ROOT));
+            return index < 0 ? null : names[index];
+        }
+    }
+}
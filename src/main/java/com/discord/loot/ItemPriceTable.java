@@ -0,0 +1,89 @@
+package com.discord.loot;
+
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.game.ItemManager;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Item prices in a flat array indexed by item ID, so valuing a stack is one array read on any
+ * thread. Prices come from {@link ItemManager}, which must be called on the client thread; a
+ * refresh reads them a batch per client tick into a fresh array and publishes it when complete.
+ */
+final class ItemPriceTable {
+    private static final int BATCH_SIZE = 2000;
+    // Retry interval until the first complete load, e.g. when started before the cache is ready.
+    private static final long CHECK_INTERVAL_MINUTES = 1;
+
+    private final Client client;
+    private final ClientThread clientThread;
+    private final ItemManager itemManager;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "ItemPrices");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile int[] prices = new int[0];
+    private volatile boolean refreshing;
+    private volatile long loadedAt;
+
+    ItemPriceTable(Client client, ClientThread clientThread, ItemManager itemManager) {
+        this.client = client;
+        this.clientThread = clientThread;
+        this.itemManager = itemManager;
+    }
+
+    void start(Duration refreshInterval) {
+        long intervalNanos = Math.max(TimeUnit.MINUTES.toNanos(1), refreshInterval.toNanos());
+        executor.scheduleWithFixedDelay(() -> {
+            if (!refreshing && (loadedAt == 0 || System.nanoTime() - loadedAt >= intervalNanos)) refresh();
+        }, 0, CHECK_INTERVAL_MINUTES, TimeUnit.MINUTES);
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** Price of {@code quantity} of an item, or 0 if the item's price isn't known yet. */
+    long stackValue(int itemId, int quantity) {
+        int[] table = prices;
+        return itemId >= 0 && itemId < table.length ? (long) table[itemId] * quantity : 0;
+    }
+
+    private void refresh() {
+        refreshing = true;
+        clientThread.invokeLater(new BooleanSupplier() {
+            private int[] next;
+            private int nextId;
+
+            // Runs once per client tick until it returns true.
+            @Override
+            public boolean getAsBoolean() {
+                if (next == null) {
+                    if (client.getGameState() != GameState.LOGGED_IN) {
+                        refreshing = false;
+                        return true;
+                    }
+                    next = new int[client.getItemCount()];
+                }
+                int end = Math.min(next.length, nextId + BATCH_SIZE);
+                for (; nextId < end; nextId++) {
+                    next[nextId] = itemManager.getItemPrice(nextId);
+                }
+                if (nextId < next.length) return false;
+
+                prices = next;
+                loadedAt = System.nanoTime();
+                refreshing = false;
+                return true;
+            }
+        });
+    }
+}
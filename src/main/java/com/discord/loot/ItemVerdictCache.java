@@ -0,0 +1,101 @@
+package com.discord.loot;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressed int-keyed cache of item names and their loot rule verdict. Names survive
+ * settings edits; verdicts are reset whenever a new {@link LootSettingsSnapshot} is seen.
+ * Only touched from the {@link LootEventPipeline} worker.
+ */
+final class ItemVerdictCache {
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    private String[] names;
+    private LootRules.Verdict[] verdicts;
+    private int size;
+    private LootSettingsSnapshot snapshot;
+
+    ItemVerdictCache() {
+        allocate(256);
+    }
+
+    /**
+     * Returns the slot holding {@code itemId}, or -1 if its name has not been resolved yet.
+     * Binds the cache to {@code current}, dropping verdicts made for an older snapshot.
+     */
+    int find(int itemId, LootSettingsSnapshot current) {
+        if (current != snapshot) {
+            Arrays.fill(verdicts, null);
+            snapshot = current;
+        }
+        int mask = keys.length - 1;
+        for (int i = mix(itemId) & mask; ; i = (i + 1) & mask) {
+            int key = keys[i];
+            if (key == itemId) return i;
+            if (key == EMPTY) return -1;
+        }
+    }
+
+    /** Stores a resolved name for an item not yet in the cache and returns its slot. */
+    int put(int itemId, String name) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        int i = mix(itemId) & mask;
+        while (keys[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = itemId;
+        names[i] = name;
+        verdicts[i] = null;
+        size++;
+        return i;
+    }
+
+    String nameAt(int slot) {
+        return names[slot];
+    }
+
+    /** Returns the item's {@link LootRules} verdict, classifying on first use per snapshot. */
+    LootRules.Verdict verdictAt(int slot) {
+        LootRules.Verdict verdict = verdicts[slot];
+        if (verdict == null) {
+            verdict = LootClassifier.classify(names[slot], snapshot);
+            verdicts[slot] = verdict;
+        }
+        return verdict;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        String[] oldNames = names;
+        LootRules.Verdict[] oldVerdicts = verdicts;
+        allocate(oldKeys.length * 2);
+
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (keys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = oldKeys[j];
+            names[i] = oldNames[j];
+            verdicts[i] = oldVerdicts[j];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        names = new String[capacity];
+        verdicts = new LootRules.Verdict[capacity];
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,94 @@
+package com.discord.loot;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram in the style of HdrHistogram: each power of two is split into
+ * {@code 2^SUB_BUCKET_BITS} linear sub-buckets, giving about 12% relative error. Recording is a
+ * single atomic increment, so it is safe and cheap from any thread.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    void recordNanos(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Lost a race with a larger value; retry against it.
+        }
+    }
+
+    /** Point-in-time copy of the counts, taken without stopping writers. */
+    Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, max.get());
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+        return (exponent + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Upper bound of the values that land in a bucket.
+    private static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << exponent) - 1;
+    }
+
+    static final class Snapshot {
+        private final long[] counts;
+        private final long total;
+        private final long max;
+
+        private Snapshot(long[] counts, long total, long max) {
+            this.counts = counts;
+            this.total = total;
+            this.max = max;
+        }
+
+        long getCount() {
+            return total;
+        }
+
+        long getMaxNanos() {
+            return max;
+        }
+
+        long percentileNanos(double percentile) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(percentile / 100.0 * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValueAt(i), max);
+            }
+            return max;
+        }
+
+        String describe(TimeUnit unit) {
+            if (total == 0) return "no samples";
+            String suffix = unit == TimeUnit.MICROSECONDS ? "us" : "ms";
+            return "n=" + total
+                    + " p50=" + unit.convert(percentileNanos(50), TimeUnit.NANOSECONDS) + suffix
+                    + " p99=" + unit.convert(percentileNanos(99), TimeUnit.NANOSECONDS) + suffix
+                    + " max=" + unit.convert(max, TimeUnit.NANOSECONDS) + suffix;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.discord.loot;
+
+/** Kinds of notable drop, ordered so a higher value takes precedence when several rules match. */
+final class LootClassifier {
+    static final byte IGNORE = 1;
+    static final byte FORTUNE = 2;
+    static final byte RULE = 3;
+    static final byte VALUE = 4;
+    static final byte PRIORITY = 5;
+
+    private LootClassifier() {
+    }
+
+    static LootRules.Verdict classify(String itemName, LootSettingsSnapshot settings) {
+        return settings.getLootRules().verdictFor(itemName);
+    }
+}
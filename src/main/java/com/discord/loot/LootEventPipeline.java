@@ -0,0 +1,268 @@
+package com.discord.loot;
+
+import net.runelite.api.Client;
+import net.runelite.client.game.ItemStack;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Moves loot and chat handling off the client thread. The event subscribers copy each event into
+ * a preallocated ring slot and return; a single worker thread classifies the drops, updates
+ * statistics and history, and hands notable drops to the {@link NotificationSink}s.
+ *
+ * <p>Single producer, single consumer: only the client thread publishes. Item names are the one
+ * thing the worker can't look up itself, so the producer resolves each item ID's name the first
+ * time it sees it and passes it along with that event.
+ */
+final class LootEventPipeline {
+    private static final int CAPACITY = 256;
+    private static final int INITIAL_ITEMS_PER_EVENT = 32;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final byte LOOT = 1;
+    private static final byte CHAT = 2;
+
+    private static final class Slot {
+        byte type;
+        LootSettingsSnapshot settings;
+        long timestamp;
+        String npcName;
+        String playerName;
+        int kills;
+        int itemCount;
+        int[] itemIds = new int[INITIAL_ITEMS_PER_EVENT];
+        int[] quantities = new int[INITIAL_ITEMS_PER_EVENT];
+        // Set only for items the worker hasn't been told the name of yet.
+        String[] itemNames = new String[INITIAL_ITEMS_PER_EVENT];
+        String message;
+        ChatTrigger trigger;
+
+        void ensureItems(int count) {
+            if (count <= itemIds.length) return;
+            itemIds = new int[count];
+            quantities = new int[count];
+            itemNames = new String[count];
+        }
+
+        void clear() {
+            settings = null;
+            npcName = null;
+            playerName = null;
+            message = null;
+            trigger = null;
+            Arrays.fill(itemNames, 0, itemCount, null);
+        }
+    }
+
+    private final Slot[] slots = new Slot[CAPACITY];
+    private final Thread worker;
+    private volatile long published;
+    private volatile long consumed;
+    private volatile boolean workerWaiting;
+    private volatile boolean running = true;
+
+    private final Client client;
+    // Client thread only: item IDs whose names have been passed to the worker.
+    private final BitSet resolvedIds = new BitSet();
+
+    // Worker only.
+    private final ItemVerdictCache verdictCache = new ItemVerdictCache();
+    private final ItemPriceTable priceTable;
+    private final DropStatistics statistics;
+    private final LootHistoryStore historyStore;
+    private final PipelineMetrics metrics;
+    private final NotificationSink[] sinks;
+
+    LootEventPipeline(Client client, ItemPriceTable priceTable, DropStatistics statistics,
+                      LootHistoryStore historyStore, PipelineMetrics metrics, List<NotificationSink> sinks) {
+        this.client = client;
+        this.priceTable = priceTable;
+        this.statistics = statistics;
+        this.historyStore = historyStore;
+        this.metrics = metrics;
+        this.sinks = sinks.toArray(new NotificationSink[0]);
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = new Slot();
+        }
+        metrics.setLootQueueDepth(this::pendingCount);
+        worker = new Thread(this::run, "LootPipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    int pendingCount() {
+        return (int) (published - consumed);
+    }
+
+    /** Client thread only: how many events can be published before the ring is full. */
+    int remainingCapacity() {
+        return slots.length - pendingCount();
+    }
+
+    /** Client thread only. Returns false if the ring was full and the event was dropped. */
+    boolean publishLoot(LootSettingsSnapshot settings, String npcName, String playerName, int kills,
+                        Collection<ItemStack> items) {
+        Slot slot = claim();
+        if (slot == null) return false;
+        slot.type = LOOT;
+        slot.settings = settings;
+        slot.timestamp = System.currentTimeMillis();
+        slot.npcName = npcName;
+        slot.playerName = playerName;
+        slot.kills = kills;
+        slot.ensureItems(items.size());
+        int count = 0;
+        for (ItemStack item : items) {
+            int itemId = item.getId();
+            slot.itemIds[count] = itemId;
+            slot.quantities[count] = item.getQuantity();
+            if (itemId < 0 || !resolvedIds.get(itemId)) {
+                slot.itemNames[count] = client.getItemDefinition(itemId).getName();
+                if (itemId >= 0) resolvedIds.set(itemId);
+            }
+            count++;
+        }
+        slot.itemCount = count;
+        publish();
+        return true;
+    }
+
+    /**
+     * Client thread only; {@code trigger} is what the message matched there, so ordinary chat never
+     * takes a ring slot. Returns false if the ring was full and the message was dropped.
+     */
+    boolean publishChat(LootSettingsSnapshot settings, ChatTrigger trigger, String message) {
+        Slot slot = claim();
+        if (slot == null) return false;
+        slot.type = CHAT;
+        slot.settings = settings;
+        slot.timestamp = System.currentTimeMillis();
+        slot.message = message;
+        slot.trigger = trigger;
+        slot.itemCount = 0;
+        publish();
+        return true;
+    }
+
+    private Slot claim() {
+        long sequence = published;
+        if (!running || sequence - consumed >= slots.length) {
+            metrics.droppedLootEvents.increment();
+            return null;
+        }
+        return slots[(int) sequence & (slots.length - 1)];
+    }
+
+    private void publish() {
+        published = published + 1;
+        if (workerWaiting) LockSupport.unpark(worker);
+    }
+
+    /** Stops accepting events and waits up to {@code deadline} for the worker to drain the ring. */
+    void shutdown(Duration deadline) {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(Math.max(1, deadline.toMillis()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            System.err.println("Loot pipeline stopped with " + pendingCount() + " unprocessed event(s)");
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            long next = consumed;
+            if (next == published) {
+                if (!running || Thread.currentThread().isInterrupted()) return;
+                workerWaiting = true;
+                // Re-check after announcing, so a publish between the two reads is never missed.
+                if (next == published && running) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                workerWaiting = false;
+                continue;
+            }
+
+            Slot slot = slots[(int) next & (slots.length - 1)];
+            try {
+                if (slot.type == LOOT) processLoot(slot);
+                else processChat(slot);
+            } catch (RuntimeException e) {
+                System.err.println("Loot pipeline failed to process an event:");
+                e.printStackTrace();
+            }
+            slot.clear();
+            consumed = next + 1;
+        }
+    }
+
+    private void processLoot(Slot slot) {
+        long start = System.nanoTime();
+        LootSettingsSnapshot settings = slot.settings;
+        String npcName = slot.npcName;
+        String lowerNpcName = npcName == null ? null : npcName.toLowerCase(Locale.ROOT);
+        int count = slot.itemCount;
+        // The producer sends each name only once, so store them all before any sink runs; one that
+        // throws would otherwise leave the event's later items unnamed for the rest of the session.
+        for (int i = 0; i < count; i++) {
+            String name = slot.itemNames[i];
+            if (name != null && verdictCache.find(slot.itemIds[i], settings) < 0) {
+                verdictCache.put(slot.itemIds[i], name);
+            }
+        }
+        statistics.recordKill(npcName, Math.max(1, slot.kills));
+
+        // The history store keeps these arrays, so they can't be the slot's own.
+        int[] historyIds = Arrays.copyOf(slot.itemIds, count);
+        int[] historyQuantities = Arrays.copyOf(slot.quantities, count);
+        String[] historyNames = new String[count];
+        for (int i = 0; i < count; i++) {
+            int itemId = slot.itemIds[i];
+            int quantity = slot.quantities[i];
+            int cacheSlot = verdictCache.find(itemId, settings);
+            if (cacheSlot < 0) {
+                String name = slot.itemNames[i];
+                cacheSlot = verdictCache.put(itemId, name != null ? name : "Item " + itemId);
+            }
+            String itemName = verdictCache.nameAt(cacheSlot);
+            historyNames[i] = itemName;
+            statistics.recordDrop(npcName, itemId, quantity);
+
+            long value = priceTable.stackValue(itemId, quantity);
+            int result = verdictCache.verdictAt(cacheSlot).evaluate(lowerNpcName, quantity, value);
+            int actions = LootRules.Verdict.actionsOf(result);
+            if (actions == 0) continue;
+            statistics.recordNotable(npcName, itemId, itemName, quantity);
+
+            NotableDrop drop = new NotableDrop(settings, itemId, itemName, npcName, slot.playerName, quantity, value,
+                    LootRules.Verdict.kindOf(result), actions);
+            for (NotificationSink sink : sinks) {
+                sink.onDrop(drop);
+            }
+        }
+        for (NotificationSink sink : sinks) {
+            sink.onLootEventEnd();
+        }
+
+        historyStore.append(slot.timestamp, npcName, slot.playerName, historyIds, historyQuantities, historyNames);
+        metrics.lootWorker.recordNanos(System.nanoTime() - start);
+    }
+
+    private void processChat(Slot slot) {
+        LootSettingsSnapshot settings = slot.settings;
+        // The snapshot's trigger engine only holds enabled kinds, so every match here is wanted.
+        ChatTrigger trigger = slot.trigger;
+        for (NotificationSink sink : sinks) {
+            sink.onChatTrigger(settings, trigger, slot.message);
+        }
+    }
+}
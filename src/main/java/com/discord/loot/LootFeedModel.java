@@ -0,0 +1,180 @@
+package com.discord.loot;
+
+import javax.swing.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fixed-capacity loot feed. Entries are kept as compact records in a ring buffer and only
+ * formatted when a row is rendered. Producers on any thread stage entries; the EDT folds them
+ * in at most once per frame.
+ */
+final class LootFeedModel extends AbstractListModel<String> {
+    static final int NO_ITEM = -1;
+
+    private static final int FRAME_INTERVAL_MS = 16;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private final Ring entries;
+    private final Ring staged;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Timer flushTimer;
+    private Runnable onFlush = () -> {};
+
+    LootFeedModel(int capacity) {
+        entries = new Ring(capacity);
+        staged = new Ring(capacity);
+        flushTimer = new Timer(FRAME_INTERVAL_MS, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    /** Runs on the EDT after each batch is added, e.g. to scroll to the newest entry. */
+    void setOnFlush(Runnable onFlush) {
+        this.onFlush = onFlush;
+    }
+
+    void addItem(long timestamp, int itemId, String itemName, String npcName, int quantity) {
+        synchronized (staged) {
+            staged.add(timestamp, itemId, quantity, itemName, npcName);
+        }
+        scheduleFlush();
+    }
+
+    void addMessage(long timestamp, String message) {
+        addItem(timestamp, NO_ITEM, message, null, 0);
+    }
+
+    /** Changes the cap, keeping the newest entries. Must be called on the EDT. */
+    void setCapacity(int capacity) {
+        if (capacity <= 0 || capacity == entries.capacity()) return;
+        int oldSize = entries.size;
+        entries.resize(capacity);
+        synchronized (staged) {
+            staged.resize(capacity);
+        }
+        if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+        if (entries.size > 0) fireIntervalAdded(this, 0, entries.size - 1);
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size;
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        int i = entries.physical(index);
+        StringBuilder entry = new StringBuilder(64)
+                .append('[').append(TIME_FORMAT.format(Instant.ofEpochMilli(entries.timestamps[i]))).append("] ");
+        if (entries.itemIds[i] == NO_ITEM) {
+            return entry.append(entries.names[i]).toString();
+        }
+        if (entries.quantities[i] > 1) {
+            entry.append(entries.quantities[i]).append("x ");
+        }
+        return entry.append(entries.names[i]).append(" from ").append(entries.sources[i]).toString();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(flushTimer::restart);
+        }
+    }
+
+    private void flush() {
+        int oldSize = entries.size;
+        int added;
+        synchronized (staged) {
+            flushScheduled.set(false);
+            added = staged.size;
+            for (int n = 0; n < added; n++) {
+                int i = staged.physical(n);
+                entries.add(staged.timestamps[i], staged.itemIds[i], staged.quantities[i],
+                        staged.names[i], staged.sources[i]);
+            }
+            staged.clear();
+        }
+        if (added == 0) return;
+
+        // Entries that fell off the front of a full ring, then the new tail.
+        int removed = Math.min(oldSize + added - entries.size, oldSize);
+        if (removed > 0) fireIntervalRemoved(this, 0, removed - 1);
+        fireIntervalAdded(this, oldSize - removed, entries.size - 1);
+        onFlush.run();
+    }
+
+    private static final class Ring {
+        long[] timestamps;
+        int[] itemIds;
+        int[] quantities;
+        String[] names;
+        String[] sources;
+        int head;
+        int size;
+
+        Ring(int capacity) {
+            allocate(capacity);
+        }
+
+        int capacity() {
+            return timestamps.length;
+        }
+
+        int physical(int index) {
+            return (head + index) % timestamps.length;
+        }
+
+        void add(long timestamp, int itemId, int quantity, String name, String source) {
+            int i;
+            if (size == timestamps.length) {
+                i = head;
+                head = (head + 1) % timestamps.length;
+            } else {
+                i = physical(size++);
+            }
+            timestamps[i] = timestamp;
+            itemIds[i] = itemId;
+            quantities[i] = quantity;
+            names[i] = name;
+            sources[i] = source;
+        }
+
+        void clear() {
+            Arrays.fill(names, null);
+            Arrays.fill(sources, null);
+            head = 0;
+            size = 0;
+        }
+
+        void resize(int capacity) {
+            long[] oldTimestamps = timestamps;
+            int[] oldItemIds = itemIds;
+            int[] oldQuantities = quantities;
+            String[] oldNames = names;
+            String[] oldSources = sources;
+            int oldHead = head;
+            int oldSize = size;
+
+            allocate(capacity);
+            int skip = Math.max(0, oldSize - capacity);
+            for (int n = skip; n < oldSize; n++) {
+                int i = (oldHead + n) % oldTimestamps.length;
+                add(oldTimestamps[i], oldItemIds[i], oldQuantities[i], oldNames[i], oldSources[i]);
+            }
+        }
+
+        private void allocate(int capacity) {
+            timestamps = new long[capacity];
+            itemIds = new int[capacity];
+            quantities = new int[capacity];
+            names = new String[capacity];
+            sources = new String[capacity];
+            head = 0;
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.discord.loot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only log of every item received. Records are fixed-size so they can be addressed by
+ * number and read through a memory map; item, NPC and player names are interned into a side
+ * dictionary. Per-NPC record lists and per-item totals are rebuilt by one streaming pass on open,
+ * so queries never load the whole history onto the heap. Both are keyed by the lowercased name,
+ * so queries ignore case while records keep the names as the game spelled them.
+ *
+ * <p>The record file is mapped in fixed segments, each well under the 2 GB a single mapping can
+ * cover. Full segments are mapped once; only the newest is remapped, when a query reaches records
+ * appended since it was last mapped.
+ *
+ * <p>All file access happens on the store's own thread; callers get futures.
+ */
+final class LootHistoryStore {
+    // timestamp, item id, quantity, item name id, npc name id, player name id
+    private static final int RECORD_SIZE = 8 + 4 * 5;
+    private static final int SCAN_CHUNK_RECORDS = 8192;
+    private static final int SEGMENT_RECORDS = 1 << 24;
+
+    private final Path recordFile;
+    private final Path nameFile;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "LootHistory");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Everything below is confined to the store thread.
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    // Lowercased name to the first name id with it, and that id for every name id.
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private int[] keyIdByNameId = new int[64];
+    private IntList[] recordsByNpc = new IntList[64];
+    private long[] quantityByItemName = new long[64];
+    private FileChannel channel;
+    private BufferedWriter nameWriter;
+    private int recordCount;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(RECORD_SIZE * 64);
+
+    LootHistoryStore(Path directory) {
+        this.recordFile = directory.resolve("discord_loot_history.bin");
+        this.nameFile = directory.resolve("discord_loot_history.names");
+    }
+
+    CompletableFuture<Void> open() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                Files.createDirectories(recordFile.getParent());
+                loadNames();
+                channel = FileChannel.open(recordFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                // Drop a partially written trailing record left by a crash.
+                long complete = channel.size() / RECORD_SIZE * RECORD_SIZE;
+                channel.truncate(complete);
+                channel.position(complete);
+                rebuildIndexes();
+                nameWriter = Files.newBufferedWriter(nameFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open loot history", e);
+            }
+        }, executor);
+    }
+
+    /** Records every item of one loot event. The arrays are owned by the store after this call. */
+    void append(long timestamp, String npcName, String playerName, int[] itemIds, int[] quantities, String[] itemNames) {
+        executor.execute(() -> {
+            if (channel == null) return;
+            try {
+                int npcId = intern(npcName);
+                int playerId = intern(playerName);
+                int[] itemNameIds = new int[itemIds.length];
+                for (int i = 0; i < itemIds.length; i++) {
+                    itemNameIds[i] = intern(itemNames[i]);
+                }
+                // Names first, so a crash never leaves a record pointing past the dictionary.
+                nameWriter.flush();
+
+                for (int i = 0; i < itemIds.length; i++) {
+                    if (writeBuffer.remaining() < RECORD_SIZE) writeRecords();
+                    writeBuffer.putLong(timestamp).putInt(itemIds[i]).putInt(quantities[i])
+                            .putInt(itemNameIds[i]).putInt(npcId).putInt(playerId);
+                    index(recordCount++, npcId, itemNameIds[i], quantities[i]);
+                }
+                writeRecords();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /** The newest {@code limit} drops from an NPC, newest first. */
+    CompletableFuture<List<LootRecord>> dropsFrom(String npcName, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            Integer npcId = keyIds.get(key(npcName));
+            if (npcId == null || npcId >= recordsByNpc.length || recordsByNpc[npcId] == null) return List.of();
+
+            IntList records = recordsByNpc[npcId];
+            List<LootRecord> result = new ArrayList<>(Math.min(limit, records.size));
+            try {
+                for (int i = records.size - 1; i >= 0 && result.size() < limit; i--) {
+                    result.add(read(records.values[i]));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return result;
+        }, executor);
+    }
+
+    /** Total quantity ever received of an item, by name. */
+    CompletableFuture<Long> totalQuantity(String itemName) {
+        return CompletableFuture.supplyAsync(() -> {
+            Integer id = keyIds.get(key(itemName));
+            return id == null || id >= quantityByItemName.length ? 0L : quantityByItemName[id];
+        }, executor);
+    }
+
+    /** The newest {@code limit} drops received at or after {@code fromMillis}, newest first. */
+    CompletableFuture<List<LootRecord>> since(long fromMillis, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                // Records are appended in time order, so the oldest match can be found by bisection.
+                int lo = 0;
+                int hi = recordCount;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (segment(mid).getLong(offset(mid)) < fromMillis) lo = mid + 1;
+                    else hi = mid;
+                }
+                List<LootRecord> result = new ArrayList<>(Math.min(limit, recordCount - lo));
+                for (int i = recordCount - 1; i >= lo && result.size() < limit; i--) {
+                    result.add(read(i));
+                }
+                return result;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, executor);
+    }
+
+    void close() {
+        executor.execute(() -> {
+            try {
+                if (channel != null) channel.close();
+                if (nameWriter != null) nameWriter.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeRecords() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            channel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    // The mapping that holds {@code record}, which must be below recordCount.
+    private MappedByteBuffer segment(int record) throws IOException {
+        int index = record / SEGMENT_RECORDS;
+        if (index >= segments.length) segments = Arrays.copyOf(segments, index + 1);
+        MappedByteBuffer segment = segments[index];
+        if (segment == null || segment.capacity() <= offset(record)) {
+            int records = Math.min(SEGMENT_RECORDS, recordCount - index * SEGMENT_RECORDS);
+            segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                    (long) index * SEGMENT_RECORDS * RECORD_SIZE, (long) records * RECORD_SIZE);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    private static int offset(int record) {
+        return record % SEGMENT_RECORDS * RECORD_SIZE;
+    }
+
+    private LootRecord read(int record) throws IOException {
+        ByteBuffer map = segment(record);
+        int offset = offset(record);
+        return new LootRecord(
+                map.getLong(offset),
+                map.getInt(offset + 8),
+                map.getInt(offset + 12),
+                names.get(map.getInt(offset + 16)),
+                names.get(map.getInt(offset + 20)),
+                names.get(map.getInt(offset + 24)));
+    }
+
+    private void rebuildIndexes() throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(RECORD_SIZE * SCAN_CHUNK_RECORDS);
+        long position = 0;
+        long size = channel.size();
+        while (position < size) {
+            chunk.clear();
+            while (chunk.hasRemaining() && position + chunk.position() < size) {
+                if (channel.read(chunk, position + chunk.position()) < 0) break;
+            }
+            chunk.flip();
+            while (chunk.remaining() >= RECORD_SIZE) {
+                chunk.getLong();
+                chunk.getInt();
+                int quantity = chunk.getInt();
+                int itemNameId = chunk.getInt();
+                int npcId = chunk.getInt();
+                int playerId = chunk.getInt();
+                if (!isNameId(itemNameId) || !isNameId(npcId) || !isNameId(playerId)) {
+                    // The name dictionary lost its tail; keep only records it can describe.
+                    channel.truncate((long) recordCount * RECORD_SIZE);
+                    channel.position((long) recordCount * RECORD_SIZE);
+                    return;
+                }
+                index(recordCount++, npcId, itemNameId, quantity);
+            }
+            position += chunk.position();
+        }
+    }
+
+    private boolean isNameId(int id) {
+        return id >= 0 && id < names.size();
+    }
+
+    private void index(int record, int npcNameId, int itemNameId, int quantity) {
+        int npcId = keyIdByNameId[npcNameId];
+        itemNameId = keyIdByNameId[itemNameId];
+        if (npcId >= recordsByNpc.length) {
+            recordsByNpc = Arrays.copyOf(recordsByNpc, Math.max(npcId + 1, recordsByNpc.length * 2));
+        }
+        if (recordsByNpc[npcId] == null) recordsByNpc[npcId] = new IntList();
+        recordsByNpc[npcId].add(record);
+
+        if (itemNameId >= quantityByItemName.length) {
+            quantityByItemName = Arrays.copyOf(quantityByItemName, Math.max(itemNameId + 1, quantityByItemName.length * 2));
+        }
+        quantityByItemName[itemNameId] += quantity;
+    }
+
+    private void loadNames() throws IOException {
+        if (!Files.exists(nameFile)) return;
+        try (BufferedReader reader = Files.newBufferedReader(nameFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                nameIds.putIfAbsent(line, names.size());
+                addName(line);
+            }
+        }
+    }
+
+    private void addName(String name) {
+        int id = names.size();
+        names.add(name);
+        if (id == keyIdByNameId.length) keyIdByNameId = Arrays.copyOf(keyIdByNameId, id * 2);
+        Integer keyId = keyIds.putIfAbsent(key(name), id);
+        keyIdByNameId[id] = keyId == null ? id : keyId;
+    }
+
+    private static String key(String name) {
+        return name == null ? "" : name.toLowerCase(Locale.ROOT);
+    }
+
+    private int intern(String name) throws IOException {
+        // Names are stored one per line, so line breaks can't be part of one.
+        String clean = name == null ? "" : name.replace('\n', ' ').replace('\r', ' ');
+        Integer id = nameIds.get(clean);
+        if (id != null) return id;
+
+        id = names.size();
+        addName(clean);
+        nameIds.put(clean, id);
+        nameWriter.write(clean);
+        nameWriter.newLine();
+        return id;
+    }
+
+    private static final class IntList {
+        int[] values = new int[8];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.discord.loot;
+
+public final class LootRecord {
+    private final long timestamp;
+    private final int itemId;
+    private final int quantity;
+    private final String itemName;
+    private final String npcName;
+    private final String playerName;
+
+    LootRecord(long timestamp, int itemId, int quantity, String itemName, String npcName, String playerName) {
+        this.timestamp = timestamp;
+        this.itemId = itemId;
+        this.quantity = quantity;
+        this.itemName = itemName;
+        this.npcName = npcName;
+        this.playerName = playerName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getItemId() {
+        return itemId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public String getItemName() {
+        return itemName;
+    }
+
+    public String getNpcName() {
+        return npcName;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+}
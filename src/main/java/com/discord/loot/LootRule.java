@@ -0,0 +1,246 @@
+package com.discord.loot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One compiled loot rule. The text form, one rule per line, is
+ * <pre>
+ * [include|exclude] ITEM [npc=NPC] [qty=RANGE] [value=RANGE] [-&gt; ACTION,...]
+ * </pre>
+ * where ITEM and NPC are globs ({@code *} and {@code ?}), {@code "quoted globs"} or
+ * {@code /regular expressions/}; a RANGE is {@code min..max}, {@code min..}, {@code ..max} or a
+ * single number meaning "at least", with optional k/m/b suffixes; and ACTION is one of discord,
+ * pm, tray, sound or all (the default). Lines starting with {@code #} are comments.
+ */
+final class LootRule {
+    static final int DISCORD = 1;
+    static final int PM = 1 << 1;
+    static final int TRAY = 1 << 2;
+    static final int SOUND = 1 << 3;
+    static final int ALL_ACTIONS = DISCORD | PM | TRAY | SOUND;
+
+    final boolean exclude;
+    final NameMatcher item;
+    final NameMatcher npc;
+    final long minQuantity;
+    final long maxQuantity;
+    final long minValue;
+    final long maxValue;
+    final int actions;
+    /** The {@link LootClassifier} kind reported when this include rule decides a drop. */
+    final byte kind;
+
+    LootRule(boolean exclude, NameMatcher item, NameMatcher npc, long minQuantity, long maxQuantity,
+             long minValue, long maxValue, int actions, byte kind) {
+        this.exclude = exclude;
+        this.item = item;
+        this.npc = npc;
+        this.minQuantity = minQuantity;
+        this.maxQuantity = maxQuantity;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.actions = actions;
+        this.kind = kind;
+    }
+
+    /** True if the rule depends on more than the item name, so it can't be decided per item ID. */
+    boolean isContextual() {
+        return npc != null || minQuantity > Long.MIN_VALUE || maxQuantity < Long.MAX_VALUE
+                || minValue > Long.MIN_VALUE || maxValue < Long.MAX_VALUE;
+    }
+
+    /** @param lowerNpcName the NPC name lower-cased with {@link Locale#ROOT}, or null */
+    boolean matchesContext(String lowerNpcName, int quantity, long value) {
+        return quantity >= minQuantity && quantity <= maxQuantity
+                && value >= minValue && value <= maxValue
+                && (npc == null || npc.matches(lowerNpcName));
+    }
+
+    /**
+     * Parses one line of rule text, or returns null for blank and comment lines.
+     *
+     * @throws IllegalArgumentException with a user-facing message if the line is malformed
+     */
+    static LootRule parse(String line) {
+        String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("#")) return null;
+
+        List<Token> tokens = tokenize(trimmed);
+        int i = 0;
+        boolean exclude = false;
+        Token first = tokens.get(0);
+        if (first.isBare("include") || first.isBare("exclude")) {
+            exclude = first.isBare("exclude");
+            i++;
+        }
+        if (i >= tokens.size() || tokens.get(i).key != null || tokens.get(i).isBare("->")) {
+            throw new IllegalArgumentException("missing item pattern");
+        }
+        NameMatcher item = matcher(tokens.get(i++));
+
+        NameMatcher npc = null;
+        long[] quantity = {Long.MIN_VALUE, Long.MAX_VALUE};
+        long[] value = {Long.MIN_VALUE, Long.MAX_VALUE};
+        int actions = ALL_ACTIONS;
+        for (; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (token.isBare("->")) {
+                actions = actions(tokens.subList(i + 1, tokens.size()));
+                break;
+            }
+            if (token.key == null) throw new IllegalArgumentException("unexpected \"" + token.value + "\"");
+            switch (token.key) {
+                case "npc":
+                    npc = matcher(token);
+                    break;
+                case "qty":
+                case "quantity":
+                    quantity = range(token.value);
+                    break;
+                case "value":
+                    value = range(token.value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown filter \"" + token.key + "\"");
+            }
+        }
+        return new LootRule(exclude, item, npc, quantity[0], quantity[1], value[0], value[1], actions,
+                LootClassifier.RULE);
+    }
+
+    private static NameMatcher matcher(Token token) {
+        if (token.value.isEmpty()) throw new IllegalArgumentException("empty pattern");
+        if (!token.regex) return NameMatcher.glob(token.value);
+        try {
+            return NameMatcher.regex(token.value);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("invalid regex /" + token.value + "/: " + e.getDescription());
+        }
+    }
+
+    private static int actions(List<Token> tokens) {
+        int actions = 0;
+        for (Token token : tokens) {
+            for (String action : token.value.split(",")) {
+                switch (action.trim().toLowerCase(Locale.ROOT)) {
+                    case "":
+                        break;
+                    case "discord":
+                        actions |= DISCORD;
+                        break;
+                    case "pm":
+                        actions |= PM;
+                        break;
+                    case "tray":
+                        actions |= TRAY;
+                        break;
+                    case "sound":
+                        actions |= SOUND;
+                        break;
+                    case "all":
+                        actions |= ALL_ACTIONS;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown action \"" + action.trim() + "\"");
+                }
+            }
+        }
+        if (actions == 0) throw new IllegalArgumentException("no actions after ->");
+        return actions;
+    }
+
+    private static long[] range(String text) {
+        int dots = text.indexOf("..");
+        if (dots < 0) return new long[]{amount(text), Long.MAX_VALUE};
+        String min = text.substring(0, dots);
+        String max = text.substring(dots + 2);
+        return new long[]{
+                min.isEmpty() ? Long.MIN_VALUE : amount(min),
+                max.isEmpty() ? Long.MAX_VALUE : amount(max)};
+    }
+
+    private static long amount(String text) {
+        String number = text.trim().toLowerCase(Locale.ROOT).replace(",", "");
+        long multiplier = 1;
+        if (number.endsWith("k")) multiplier = 1_000;
+        else if (number.endsWith("m")) multiplier = 1_000_000;
+        else if (number.endsWith("b")) multiplier = 1_000_000_000;
+        if (multiplier > 1) number = number.substring(0, number.length() - 1);
+        try {
+            return Math.round(Double.parseDouble(number) * multiplier);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid number \"" + text + "\"");
+        }
+    }
+
+    private static final class Token {
+        final String key;
+        final String value;
+        final boolean regex;
+        final boolean quoted;
+
+        Token(String key, String value, boolean regex, boolean quoted) {
+            this.key = key;
+            this.value = value;
+            this.regex = regex;
+            this.quoted = quoted;
+        }
+
+        boolean isBare(String word) {
+            return key == null && !quoted && !regex && value.equalsIgnoreCase(word);
+        }
+    }
+
+    // Splits on whitespace, keeping "quoted text" and /regex/ (with \" and \/ escapes) together,
+    // optionally prefixed by key=.
+    private static List<Token> tokenize(String line) {
+        List<Token> tokens = new ArrayList<>();
+        int n = line.length();
+        int i = 0;
+        while (i < n) {
+            if (Character.isWhitespace(line.charAt(i))) {
+                i++;
+                continue;
+            }
+
+            String key = null;
+            int start = i;
+            if (line.charAt(i) != '"' && line.charAt(i) != '/') {
+                while (i < n && !Character.isWhitespace(line.charAt(i)) && line.charAt(i) != '=') i++;
+                if (i < n && line.charAt(i) == '=') {
+                    key = line.substring(start, i).toLowerCase(Locale.ROOT);
+                    i++;
+                } else {
+                    tokens.add(new Token(null, line.substring(start, i), false, false));
+                    continue;
+                }
+            }
+
+            if (i < n && (line.charAt(i) == '"' || line.charAt(i) == '/')) {
+                char delimiter = line.charAt(i++);
+                StringBuilder value = new StringBuilder();
+                while (i < n && line.charAt(i) != delimiter) {
+                    char c = line.charAt(i++);
+                    if (c == '\\' && i < n && line.charAt(i) == delimiter) c = line.charAt(i++);
+                    else if (c == '\\' && i < n && delimiter == '/') {
+                        // Keep other escapes for the regex engine.
+                        value.append(c);
+                        c = line.charAt(i++);
+                    }
+                    value.append(c);
+                }
+                if (i >= n) throw new IllegalArgumentException("unterminated " + delimiter);
+                i++;
+                tokens.add(new Token(key, value.toString(), delimiter == '/', delimiter == '"'));
+            } else {
+                start = i;
+                while (i < n && !Character.isWhitespace(line.charAt(i))) i++;
+                tokens.add(new Token(key, line.substring(start, i), false, false));
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,216 @@
+package com.discord.loot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The priority list, the built-in fortune, slayer and value rules and the user's {@link LootRule}s,
+ * compiled into one structure when settings change. Item patterns are grouped so equal patterns
+ * are evaluated once, and exact names are looked up in a hash map. {@link #verdictFor} runs the
+ * item patterns once per item, and the resulting {@link Verdict} is cached per item ID; only rules
+ * with NPC, quantity or value filters are checked again for each drop.
+ *
+ * <p>Priority drops always notify with every action. Otherwise a drop notifies with the actions of
+ * every matching include rule, minus the actions of every matching exclude rule. Ignoring slayer
+ * boxes only narrows the built-in fortune rules, so value and user rules still apply to them.
+ */
+final class LootRules {
+    private static final String[] FORTUNE_PATTERNS = {"*box*", "*cache*", "*crate*", "*pack*", "*present*"};
+    private static final LootRule[] NO_RULES = new LootRule[0];
+
+    private final Set<String> priorityDrops;
+    private final Map<String, LootRule[]> rulesByExactName;
+    private final NameMatcher[] patterns;
+    private final LootRule[][] rulesByPattern;
+    private final List<String> errors;
+    private final int ruleCount;
+    // Everything the compiled form depends on, to skip recompiling when other settings change.
+    private final List<Object> source;
+
+    private LootRules(Set<String> priorityDrops, List<LootRule> rules, List<String> errors, List<Object> source) {
+        this.priorityDrops = priorityDrops;
+        this.errors = List.copyOf(errors);
+        this.ruleCount = rules.size();
+        this.source = source;
+
+        Map<String, List<LootRule>> exact = new HashMap<>();
+        Map<String, NameMatcher> matchers = new LinkedHashMap<>();
+        Map<String, List<LootRule>> grouped = new LinkedHashMap<>();
+        for (LootRule rule : rules) {
+            String name = rule.item.exactName();
+            if (name != null) {
+                exact.computeIfAbsent(name, k -> new ArrayList<>()).add(rule);
+            } else {
+                matchers.putIfAbsent(rule.item.source(), rule.item);
+                grouped.computeIfAbsent(rule.item.source(), k -> new ArrayList<>()).add(rule);
+            }
+        }
+        rulesByExactName = new HashMap<>();
+        exact.forEach((name, list) -> rulesByExactName.put(name, list.toArray(NO_RULES)));
+        patterns = matchers.values().toArray(new NameMatcher[0]);
+        rulesByPattern = new LootRule[patterns.length][];
+        int i = 0;
+        for (List<LootRule> list : grouped.values()) {
+            rulesByPattern[i++] = list.toArray(NO_RULES);
+        }
+    }
+
+    static LootRules compile(DiscordLootSettings settings) {
+        List<Object> source = source(settings);
+        List<LootRule> rules = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+
+        if (settings.fortuneEnabled) {
+            NameMatcher slayerBoxes = settings.slayerEnabled ? NameMatcher.glob("*slayer*box*") : null;
+            for (String pattern : FORTUNE_PATTERNS) {
+                NameMatcher matcher = NameMatcher.glob(pattern);
+                if (slayerBoxes != null) matcher = matcher.excluding(slayerBoxes);
+                rules.add(builtIn(matcher, Long.MIN_VALUE, LootClassifier.FORTUNE));
+            }
+        }
+        if (settings.valueNotificationsEnabled) {
+            rules.add(builtIn(NameMatcher.glob("*"), settings.minimumValue, LootClassifier.VALUE));
+        }
+
+        int lineNumber = 0;
+        for (String line : settings.lootRules) {
+            lineNumber++;
+            try {
+                LootRule rule = LootRule.parse(line);
+                if (rule != null) rules.add(rule);
+            } catch (IllegalArgumentException e) {
+                errors.add("Line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+
+        return new LootRules(keys(settings.priorityDrops), rules, errors, source);
+    }
+
+    /** Priority drops are saved as the game spells them; matching uses these lowercased keys. */
+    static Set<String> keys(List<String> itemNames) {
+        Set<String> keys = new HashSet<>(itemNames.size() * 2);
+        for (String name : itemNames) {
+            keys.add(name.toLowerCase(Locale.ROOT));
+        }
+        return Set.copyOf(keys);
+    }
+
+    /** Returns {@code previous} if nothing it was compiled from has changed, otherwise compiles anew. */
+    static LootRules compile(DiscordLootSettings settings, LootRules previous) {
+        return previous.source.equals(source(settings)) ? previous : compile(settings);
+    }
+
+    private static List<Object> source(DiscordLootSettings settings) {
+        return List.of(List.copyOf(settings.priorityDrops), List.copyOf(settings.lootRules),
+                settings.fortuneEnabled, settings.slayerEnabled,
+                settings.valueNotificationsEnabled, settings.minimumValue);
+    }
+
+    private static LootRule builtIn(NameMatcher item, long minValue, byte kind) {
+        return new LootRule(false, item, null, Long.MIN_VALUE, Long.MAX_VALUE,
+                minValue, Long.MAX_VALUE, LootRule.ALL_ACTIONS, kind);
+    }
+
+    /** Messages for rule lines that failed to parse; those lines are skipped. */
+    List<String> getErrors() {
+        return errors;
+    }
+
+    /** Number of compiled rules, including the built-in ones. */
+    int size() {
+        return ruleCount;
+    }
+
+    Verdict verdictFor(String itemName) {
+        String lower = itemName.toLowerCase(Locale.ROOT);
+        if (priorityDrops.contains(lower)) return Verdict.PRIORITY;
+
+        Verdict.Builder verdict = new Verdict.Builder();
+        LootRule[] exact = rulesByExactName.get(lower);
+        if (exact != null) verdict.addAll(exact);
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].matches(lower)) verdict.addAll(rulesByPattern[i]);
+        }
+        return verdict.build();
+    }
+
+    /**
+     * What the rules decided for one item name. {@link #evaluate} finishes the decision for a
+     * single drop and packs the result; unpack it with {@link #kindOf} and {@link #actionsOf}.
+     */
+    static final class Verdict {
+        static final Verdict IGNORE = new Verdict(0, 0, LootClassifier.IGNORE, NO_RULES);
+        static final Verdict PRIORITY = new Verdict(LootRule.ALL_ACTIONS, 0, LootClassifier.PRIORITY, NO_RULES);
+
+        private final int includeActions;
+        private final int excludeActions;
+        private final byte kind;
+        private final LootRule[] contextual;
+
+        private Verdict(int includeActions, int excludeActions, byte kind, LootRule[] contextual) {
+            this.includeActions = includeActions;
+            this.excludeActions = excludeActions;
+            this.kind = kind;
+            this.contextual = contextual;
+        }
+
+        /** @param lowerNpcName the NPC name lower-cased with {@link Locale#ROOT}, or null */
+        int evaluate(String lowerNpcName, int quantity, long value) {
+            int include = includeActions;
+            int exclude = excludeActions;
+            byte kind = this.kind;
+            for (LootRule rule : contextual) {
+                if (!rule.matchesContext(lowerNpcName, quantity, value)) continue;
+                if (rule.exclude) {
+                    exclude |= rule.actions;
+                } else {
+                    include |= rule.actions;
+                    if (rule.kind > kind) kind = rule.kind;
+                }
+            }
+            int actions = include & ~exclude;
+            return actions == 0 ? LootClassifier.IGNORE << 8 : kind << 8 | actions;
+        }
+
+        static byte kindOf(int result) {
+            return (byte) (result >>> 8);
+        }
+
+        static int actionsOf(int result) {
+            return result & LootRule.ALL_ACTIONS;
+        }
+
+        private static final class Builder {
+            private int includeActions;
+            private int excludeActions;
+            private byte kind = LootClassifier.IGNORE;
+            private List<LootRule> contextual;
+
+            void addAll(LootRule[] rules) {
+                for (LootRule rule : rules) {
+                    if (rule.isContextual()) {
+                        if (contextual == null) contextual = new ArrayList<>();
+                        contextual.add(rule);
+                    } else if (rule.exclude) {
+                        excludeActions |= rule.actions;
+                    } else {
+                        includeActions |= rule.actions;
+                        if (rule.kind > kind) kind = rule.kind;
+                    }
+                }
+            }
+
+            Verdict build() {
+                if (contextual == null && (includeActions & ~excludeActions) == 0) return IGNORE;
+                return new Verdict(includeActions, excludeActions, kind,
+                        contextual == null ? NO_RULES : contextual.toArray(NO_RULES));
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.discord.loot;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable view of {@link DiscordLootSettings} published by the panel on every edit, so the
+ * client thread never reads collections the EDT is mutating.
+ */
+public final class LootSettingsSnapshot {
+    private final String webhookUrl;
+    private final boolean discordEnabled;
+    private final boolean pmEnabled;
+    private final boolean trayEnabled;
+    private final boolean soundEnabled;
+    private final List<String> soundFiles;
+    private final boolean petsEnabled;
+    private final boolean fortuneEnabled;
+    private final boolean slayerEnabled;
+    private final boolean broadcastsEnabled;
+    private final boolean digestEnabled;
+    private final int digestIntervalMinutes;
+    private final boolean screenshotsEnabled;
+    private final boolean valueNotificationsEnabled;
+    private final long minimumValue;
+    private final int priceRefreshMinutes;
+    private final Set<String> priorityDrops;
+    private final ChatTriggerEngine chatTriggers;
+    private final LootRules lootRules;
+    private final WebhookRouter webhookRouter;
+    private final int webhookConnectTimeoutSeconds;
+    private final int webhookRequestTimeoutSeconds;
+    private final int webhookMaxInFlight;
+    private final boolean sharedDispatchEnabled;
+    private final int sharedDispatchPort;
+    private final int trayMinIntervalSeconds;
+    private final int dedupWindowTicks;
+
+    private LootSettingsSnapshot(DiscordLootSettings settings, ChatTriggerEngine chatTriggers, LootRules lootRules) {
+        this.webhookUrl = settings.webhookUrl;
+        this.discordEnabled = settings.discordEnabled;
+        this.pmEnabled = settings.pmEnabled;
+        this.trayEnabled = settings.trayEnabled;
+        this.soundEnabled = settings.soundEnabled;
+        // In SoundEngine.Tier order.
+        this.soundFiles = List.of(Objects.toString(settings.prioritySoundFile, ""),
+                Objects.toString(settings.fortuneSoundFile, ""), Objects.toString(settings.petSoundFile, ""),
+                Objects.toString(settings.valueSoundFile, ""));
+        this.petsEnabled = settings.petsEnabled;
+        this.fortuneEnabled = settings.fortuneEnabled;
+        this.slayerEnabled = settings.slayerEnabled;
+        this.broadcastsEnabled = settings.broadcastsEnabled;
+        this.digestEnabled = settings.digestEnabled;
+        this.digestIntervalMinutes = settings.digestIntervalMinutes;
+        this.screenshotsEnabled = settings.screenshotsEnabled;
+        this.valueNotificationsEnabled = settings.valueNotificationsEnabled;
+        this.minimumValue = settings.minimumValue;
+        this.priceRefreshMinutes = settings.priceRefreshMinutes;
+        this.priorityDrops = LootRules.keys(settings.priorityDrops);
+        this.chatTriggers = chatTriggers;
+        this.lootRules = lootRules;
+        this.webhookRouter = WebhookRouter.compile(settings.webhookRoutes);
+        this.webhookConnectTimeoutSeconds = settings.webhookConnectTimeoutSeconds;
+        this.webhookRequestTimeoutSeconds = settings.webhookRequestTimeoutSeconds;
+        this.webhookMaxInFlight = settings.webhookMaxInFlight;
+        this.sharedDispatchEnabled = settings.sharedDispatchEnabled;
+        this.sharedDispatchPort = settings.sharedDispatchPort;
+        this.trayMinIntervalSeconds = settings.trayMinIntervalSeconds;
+        this.dedupWindowTicks = settings.dedupWindowTicks;
+    }
+
+    static LootSettingsSnapshot of(DiscordLootSettings settings) {
+        return new LootSettingsSnapshot(settings, ChatTriggerEngine.compile(settings.chatTriggers,
+                settings.petsEnabled, settings.broadcastsEnabled),
+                LootRules.compile(settings));
+    }
+
+    /** Builds the next snapshot, reusing the previous trigger automaton and rules if their inputs are unchanged. */
+    static LootSettingsSnapshot of(DiscordLootSettings settings, LootSettingsSnapshot previous) {
+        return new LootSettingsSnapshot(settings, previous.chatTriggers.withSettings(settings.chatTriggers,
+                settings.petsEnabled, settings.broadcastsEnabled),
+                LootRules.compile(settings, previous.lootRules));
+    }
+
+    public String getWebhookUrl() {
+        return webhookUrl;
+    }
+
+    public boolean isDiscordEnabled() {
+        return discordEnabled;
+    }
+
+    public boolean isPmEnabled() {
+        return pmEnabled;
+    }
+
+    public boolean isTrayEnabled() {
+        return trayEnabled;
+    }
+
+    public boolean isSoundEnabled() {
+        return soundEnabled;
+    }
+
+    /** The WAV file for each {@link SoundEngine.Tier}, in order; empty for the built-in tone. */
+    public List<String> getSoundFiles() {
+        return soundFiles;
+    }
+
+    public boolean isPetsEnabled() {
+        return petsEnabled;
+    }
+
+    public boolean isFortuneEnabled() {
+        return fortuneEnabled;
+    }
+
+    public boolean isSlayerEnabled() {
+        return slayerEnabled;
+    }
+
+    public boolean isBroadcastsEnabled() {
+        return broadcastsEnabled;
+    }
+
+    public boolean isDigestEnabled() {
+        return digestEnabled;
+    }
+
+    public int getDigestIntervalMinutes() {
+        return digestIntervalMinutes;
+    }
+
+    public boolean isScreenshotsEnabled() {
+        return screenshotsEnabled;
+    }
+
+    public boolean isValueNotificationsEnabled() {
+        return valueNotificationsEnabled;
+    }
+
+    public long getMinimumValue() {
+        return minimumValue;
+    }
+
+    public int getPriceRefreshMinutes() {
+        return priceRefreshMinutes;
+    }
+
+    ChatTriggerEngine getChatTriggers() {
+        return chatTriggers;
+    }
+
+    LootRules getLootRules() {
+        return lootRules;
+    }
+
+    WebhookRouter getWebhookRouter() {
+        return webhookRouter;
+    }
+
+    public Set<String> getPriorityDrops() {
+        return priorityDrops;
+    }
+
+    public int getWebhookConnectTimeoutSeconds() {
+        return webhookConnectTimeoutSeconds;
+    }
+
+    public int getWebhookRequestTimeoutSeconds() {
+        return webhookRequestTimeoutSeconds;
+    }
+
+    public int getWebhookMaxInFlight() {
+        return webhookMaxInFlight;
+    }
+
+    public boolean isSharedDispatchEnabled() {
+        return sharedDispatchEnabled;
+    }
+
+    public int getSharedDispatchPort() {
+        return sharedDispatchPort;
+    }
+
+    public int getTrayMinIntervalSeconds() {
+        return trayMinIntervalSeconds;
+    }
+
+    /** Repeats of a drop or pet message within this many ticks are dropped; 0 turns that off. */
+    public int getDedupWindowTicks() {
+        return dedupWindowTicks;
+    }
+}
@@ -0,0 +1,112 @@
+package com.discord.loot;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Case-insensitive item or NPC name pattern from a loot rule. Globs ({@code *} and {@code ?})
+ * that reduce to an exact, prefix, suffix or substring test are matched with plain string
+ * operations; anything else is compiled to a {@link Pattern} once, when the rules are compiled.
+ */
+final class NameMatcher {
+    private static final int ANY = 0;
+    private static final int EXACT = 1;
+    private static final int PREFIX = 2;
+    private static final int SUFFIX = 3;
+    private static final int CONTAINS = 4;
+    private static final int GLOB = 5;
+    private static final int REGEX = 6;
+
+    private final int kind;
+    private final String literal;
+    private final Pattern pattern;
+    private final String source;
+    // Names this one rejects even when they match; null for none.
+    private final NameMatcher except;
+
+    private NameMatcher(int kind, String literal, Pattern pattern, String source) {
+        this(kind, literal, pattern, source, null);
+    }
+
+    private NameMatcher(int kind, String literal, Pattern pattern, String source, NameMatcher except) {
+        this.kind = kind;
+        this.literal = literal;
+        this.pattern = pattern;
+        this.source = source;
+        this.except = except;
+    }
+
+    /** Compiles a glob, where {@code *} matches any run of characters and {@code ?} exactly one. */
+    static NameMatcher glob(String glob) {
+        String lower = glob.toLowerCase(Locale.ROOT);
+        String source = "glob:" + lower;
+        if (lower.chars().allMatch(c -> c == '*') && !lower.isEmpty()) return new NameMatcher(ANY, null, null, source);
+        if (lower.indexOf('?') < 0) {
+            boolean leading = lower.startsWith("*");
+            boolean trailing = lower.endsWith("*");
+            String inner = lower.substring(leading ? 1 : 0, lower.length() - (trailing && lower.length() > 1 ? 1 : 0));
+            if (inner.indexOf('*') < 0) {
+                int kind = leading && trailing ? CONTAINS : leading ? SUFFIX : trailing ? PREFIX : EXACT;
+                return new NameMatcher(kind, inner, null, source);
+            }
+        }
+
+        StringBuilder regex = new StringBuilder();
+        int literalStart = 0;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (c != '*' && c != '?') continue;
+            if (i > literalStart) regex.append(Pattern.quote(lower.substring(literalStart, i)));
+            regex.append(c == '*' ? ".*" : ".");
+            literalStart = i + 1;
+        }
+        if (literalStart < lower.length()) regex.append(Pattern.quote(lower.substring(literalStart)));
+        return new NameMatcher(GLOB, null, Pattern.compile(regex.toString(), Pattern.DOTALL), source);
+    }
+
+    /** Compiles a regular expression that matches if it is found anywhere in the name. */
+    static NameMatcher regex(String regex) {
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        return new NameMatcher(REGEX, null, pattern, "regex:" + regex);
+    }
+
+    /** A matcher accepting the names this one does, except those {@code excluded} accepts. */
+    NameMatcher excluding(NameMatcher excluded) {
+        return new NameMatcher(kind, literal, pattern, source + " except " + excluded.source, excluded);
+    }
+
+    /** Identifies equivalent matchers, so rules sharing a pattern share one evaluation. */
+    String source() {
+        return source;
+    }
+
+    /** Returns the exact name this matcher accepts, or null if it accepts more than one. */
+    String exactName() {
+        return kind == EXACT && except == null ? literal : null;
+    }
+
+    /** @param lowerName the name, already lower-cased with {@link Locale#ROOT} */
+    boolean matches(String lowerName) {
+        if (lowerName == null) return false;
+        return matchesOwn(lowerName) && (except == null || !except.matches(lowerName));
+    }
+
+    private boolean matchesOwn(String lowerName) {
+        switch (kind) {
+            case ANY:
+                return true;
+            case EXACT:
+                return lowerName.equals(literal);
+            case PREFIX:
+                return lowerName.startsWith(literal);
+            case SUFFIX:
+                return lowerName.endsWith(literal);
+            case CONTAINS:
+                return lowerName.contains(literal);
+            case GLOB:
+                return pattern.matcher(lowerName).matches();
+            default:
+                return pattern.matcher(lowerName).find();
+        }
+    }
+}
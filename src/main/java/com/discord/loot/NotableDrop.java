@@ -0,0 +1,38 @@
+package com.discord.loot;
+
+/** A drop the loot rules decided to notify about, as handed from the classifier to the sinks. */
+final class NotableDrop {
+    final LootSettingsSnapshot settings;
+    final int itemId;
+    final String itemName;
+    final String npcName;
+    final String playerName;
+    final int quantity;
+    final long value;
+    /** One of the {@link LootClassifier} kinds. */
+    final byte kind;
+    /** {@link LootRule} action bits; each sink also checks its own setting. */
+    final int actions;
+
+    NotableDrop(LootSettingsSnapshot settings, int itemId, String itemName, String npcName, String playerName,
+                int quantity, long value, byte kind, int actions) {
+        this.settings = settings;
+        this.itemId = itemId;
+        this.itemName = itemName;
+        this.npcName = npcName;
+        this.playerName = playerName;
+        this.quantity = quantity;
+        this.value = value;
+        this.kind = kind;
+        this.actions = actions;
+    }
+
+    boolean wants(int action) {
+        return (actions & action) != 0;
+    }
+
+    /** Priority drops and valuable stacks jump the tray queue. */
+    boolean isPriority() {
+        return kind == LootClassifier.PRIORITY || kind == LootClassifier.VALUE;
+    }
+}
@@ -0,0 +1,338 @@
+package com.discord.loot;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of webhook notifications that have not been delivered yet. Records are
+ * buffered in memory and written with one fsync per flush interval, so appending from the game
+ * thread never touches the disk. Torn or corrupt tails are discarded when the file is replayed.
+ */
+final class NotificationOutbox {
+    private static final byte APPEND = 1;
+    private static final byte ACK = 2;
+    private static final int HEADER_SIZE = 1 + 8 + 4;
+    private static final long FLUSH_INTERVAL_MS = 200;
+    private static final int COMPACT_AFTER_ACKS = 512;
+
+    static final class Entry {
+        final long id;
+        final String webhookUrl;
+        final DiscordEmbed embed;
+
+        Entry(long id, String webhookUrl, DiscordEmbed embed) {
+            this.id = id;
+            this.webhookUrl = webhookUrl;
+            this.embed = embed;
+        }
+    }
+
+    private final Path file;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DiscordOutbox");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this. The outbox thread swaps the two buffers and writes the full one to disk.
+    private final Map<Long, byte[]> pending = new LinkedHashMap<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(16 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(16 * 1024);
+    private long nextId = 1;
+    private int acksSinceCompaction;
+    // Stays false if the journal could not be opened; notifications are then only held in memory.
+    private boolean journaling;
+
+    // Only touched on the outbox thread after open().
+    private FileChannel channel;
+
+    NotificationOutbox(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the journal, rewrites it with only the unacknowledged records and starts the
+     * background flusher. Returns the notifications that still need to be sent.
+     */
+    List<Entry> open() throws IOException {
+        Files.createDirectories(file.getParent());
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                readJournal(new DataInputStream(new BufferedInputStream(in)));
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(pending.size());
+        for (byte[] record : pending.values()) {
+            entries.add(decode(record));
+        }
+        channel = rewrite(new ArrayList<>(pending.values()));
+        synchronized (this) {
+            journaling = true;
+        }
+        executor.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return entries;
+    }
+
+    long append(String webhookUrl, DiscordEmbed embed) {
+        synchronized (this) {
+            if (!journaling) return 0;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + embed.getDescription().length());
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(webhookUrl);
+            writeEmbed(out, embed);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        synchronized (this) {
+            long id = nextId++;
+            byte[] record = encode(APPEND, id, bytes.toByteArray());
+            pending.put(id, record);
+            write(record);
+            return id;
+        }
+    }
+
+    synchronized void ack(long id) {
+        if (!journaling || pending.remove(id) == null) return;
+        write(encode(ACK, id, new byte[0]));
+        if (++acksSinceCompaction >= COMPACT_AFTER_ACKS) {
+            acksSinceCompaction = 0;
+            executor.execute(this::compactQuietly);
+        }
+    }
+
+    /** Writes out everything buffered so far and stops the flusher. */
+    void close() {
+        executor.shutdown();
+        if (channel == null) return;
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+            flush();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void write(byte[] record) {
+        if (buffer.remaining() < record.length) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + record.length));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        }
+        buffer.put(record);
+    }
+
+    private void flush() throws IOException {
+        ByteBuffer full;
+        synchronized (this) {
+            if (buffer.position() == 0) return;
+            full = buffer;
+            buffer = spare;
+            spare = full;
+        }
+        full.flip();
+        while (full.hasRemaining()) {
+            channel.write(full);
+        }
+        channel.force(false);
+        full.clear();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        List<byte[]> records;
+        ByteBuffer held;
+        synchronized (this) {
+            records = new ArrayList<>(pending.values());
+            // Anything buffered since the flush is already part of pending, so the compacted file
+            // has it; it's held back in case the old journal has to be kept after all.
+            held = buffer;
+            buffer = ByteBuffer.allocate(held.capacity());
+        }
+
+        FileChannel compacted;
+        try {
+            compacted = rewrite(records);
+        } catch (IOException e) {
+            System.err.println("Failed to compact the notification outbox, keeping the old journal: " + e.getMessage());
+            try {
+                held.flip();
+                while (held.hasRemaining()) {
+                    channel.write(held);
+                }
+                channel.force(false);
+            } catch (IOException writeFailed) {
+                synchronized (this) {
+                    journaling = false;
+                }
+                System.err.println("Notification outbox disabled, pending notifications are only kept in memory: "
+                        + writeFailed.getMessage());
+            }
+            return;
+        }
+        FileChannel old = channel;
+        channel = compacted;
+        try {
+            old.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Replaces the journal with just the given records and returns it, open for appending. The
+    // channel is opened on the temporary file, so once the move has happened nothing can fail.
+    private FileChannel rewrite(List<byte[]> records) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            for (byte[] record : records) {
+                ByteBuffer data = ByteBuffer.wrap(record);
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+            }
+            out.force(true);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return out;
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    private void readJournal(DataInputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        while (true) {
+            byte type;
+            long id;
+            byte[] payload;
+            try {
+                type = in.readByte();
+                id = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length > 1 << 20) return;
+                payload = new byte[length];
+                in.readFully(payload);
+                int expected = in.readInt();
+                byte[] record = encode(type, id, payload);
+                crc.reset();
+                crc.update(record, 0, record.length - 4);
+                if ((int) crc.getValue() != expected) return;
+
+                if (type == APPEND) {
+                    pending.put(id, record);
+                } else if (type == ACK) {
+                    pending.remove(id);
+                } else {
+                    return;
+                }
+                nextId = Math.max(nextId, id + 1);
+            } catch (EOFException e) {
+                // A record cut short by a crash; everything before it is intact.
+                return;
+            }
+        }
+    }
+
+    private static byte[] encode(byte type, long id, byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length + 4);
+        record.put(type).putLong(id).putInt(payload.length).put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    private static Entry decode(byte[] record) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(record);
+        header.get();
+        long id = header.getLong();
+        int length = header.getInt();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, HEADER_SIZE, length));
+        String webhookUrl = in.readUTF();
+        String title = in.readUTF();
+        String description = in.readUTF();
+        int color = in.readInt();
+        if (in.available() == 0) {
+            // Written before embeds carried a timestamp, thumbnail and fields.
+            return new Entry(id, webhookUrl, new DiscordEmbed(title, description, color));
+        }
+        return new Entry(id, webhookUrl, readEmbedRest(in, title, description, color));
+    }
+
+    /** The journal's embed encoding, also used to hand embeds to another client. */
+    static void writeEmbed(DataOutput out, DiscordEmbed embed) throws IOException {
+        out.writeUTF(embed.getTitle());
+        out.writeUTF(embed.getDescription());
+        out.writeInt(embed.getColor());
+        out.writeLong(embed.getTimestamp());
+        out.writeUTF(embed.getThumbnailUrl() == null ? "" : embed.getThumbnailUrl());
+        out.writeShort(embed.getFields().size());
+        for (DiscordEmbed.Field field : embed.getFields()) {
+            out.writeUTF(field.getName());
+            out.writeUTF(field.getValue());
+            out.writeBoolean(field.isInline());
+        }
+    }
+
+    static DiscordEmbed readEmbed(DataInput in) throws IOException {
+        return readEmbedRest(in, in.readUTF(), in.readUTF(), in.readInt());
+    }
+
+    private static DiscordEmbed readEmbedRest(DataInput in, String title, String description, int color)
+            throws IOException {
+        long timestamp = in.readLong();
+        String thumbnailUrl = in.readUTF();
+        int fieldCount = in.readUnsignedShort();
+        List<DiscordEmbed.Field> fields = new ArrayList<>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            fields.add(new DiscordEmbed.Field(in.readUTF(), in.readUTF(), in.readBoolean()));
+        }
+        return new DiscordEmbed(title, description, color, timestamp,
+                thumbnailUrl.isEmpty() ? null : thumbnailUrl, fields);
+    }
+}
@@ -0,0 +1,15 @@
+package com.discord.loot;
+
+/**
+ * Final stage of the loot pipeline. Called on the pipeline worker thread, in event order;
+ * implementations that must touch the client or the EDT hand off from there themselves.
+ */
+interface NotificationSink {
+    void onDrop(NotableDrop drop);
+
+    /** Called after the last drop of each loot event, so a sink can send one message per kill. */
+    default void onLootEventEnd() {
+    }
+
+    void onChatTrigger(LootSettingsSnapshot settings, ChatTrigger trigger, String message);
+}
@@ -0,0 +1,201 @@
+package com.discord.loot;
+
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Client;
+import net.runelite.client.callback.ClientThread;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/** The notification sinks fed by {@link LootEventPipeline}, one per output channel. */
+final class NotificationSinks {
+    private NotificationSinks() {
+    }
+
+    /**
+     * Folds the drops of one loot event into one webhook message per routed destination. Events with
+     * a priority drop, and pets, are queued straight away and sent once their screenshot is ready
+     * when screenshots are enabled.
+     */
+    static final class Discord implements NotificationSink {
+        private final WebhookQueue dispatcher;
+        private final ScreenshotCapture screenshots;
+        // Only touched on the pipeline worker.
+        private final Map<String, List<DiscordEmbed>> embedsByWebhook = new HashMap<>();
+        private boolean screenshotWanted;
+
+        Discord(WebhookQueue dispatcher, ScreenshotCapture screenshots) {
+            this.dispatcher = dispatcher;
+            this.screenshots = screenshots;
+        }
+
+        @Override
+        public void onDrop(NotableDrop drop) {
+            LootSettingsSnapshot settings = drop.settings;
+            if (!settings.isDiscordEnabled() || settings.isDigestEnabled() || !drop.wants(LootRule.DISCORD)) return;
+
+            List<String> webhooks = settings.getWebhookRouter()
+                    .route(routeCategory(drop.kind), drop.itemName, drop.npcName, settings.getWebhookUrl());
+            if (webhooks.isEmpty()) return;
+            DiscordEmbed embed = dropEmbed(drop.itemName, drop.npcName, drop.playerName, drop.quantity, drop.value);
+            for (String webhook : webhooks) {
+                embedsByWebhook.computeIfAbsent(webhook, url -> new ArrayList<>()).add(embed);
+            }
+            screenshotWanted |= settings.isScreenshotsEnabled() && drop.isPriority();
+        }
+
+        @Override
+        public void onLootEventEnd() {
+            if (embedsByWebhook.isEmpty()) return;
+            if (screenshotWanted) {
+                send(embedsByWebhook, screenshots.capture());
+                screenshotWanted = false;
+            } else {
+                embedsByWebhook.forEach(dispatcher::enqueue);
+            }
+            embedsByWebhook.clear();
+        }
+
+        @Override
+        public void onChatTrigger(LootSettingsSnapshot settings, ChatTrigger trigger, String message) {
+            if (!settings.isDiscordEnabled()) return;
+            List<DiscordEmbed> embed = List.of(new DiscordEmbed(trigger.getKind().getTitle(), message,
+                    DiscordEmbed.COLOR_GREEN, System.currentTimeMillis(), null, List.of()));
+            Map<String, List<DiscordEmbed>> byWebhook = new HashMap<>();
+            for (String webhook : settings.getWebhookRouter()
+                    .route(WebhookRoute.Category.of(trigger.getKind()), null, null, settings.getWebhookUrl())) {
+                byWebhook.put(webhook, embed);
+            }
+            if (settings.isScreenshotsEnabled() && trigger.getKind() == ChatTrigger.Kind.PET) {
+                send(byWebhook, screenshots.capture());
+            } else {
+                byWebhook.forEach(dispatcher::enqueue);
+            }
+        }
+
+        // Every webhook's queue takes over a reference, so the capture hands out one per webhook.
+        private void send(Map<String, List<DiscordEmbed>> embeds, CompletableFuture<ScreenshotCapture.Screenshot> capture) {
+            if (embeds.isEmpty()) {
+                ScreenshotCapture.releaseWhenDone(capture);
+                return;
+            }
+            int extraReferences = embeds.size() - 1;
+            CompletableFuture<ScreenshotCapture.Screenshot> shared = capture.thenApply(screenshot -> {
+                for (int i = 0; screenshot != null && i < extraReferences; i++) {
+                    screenshot.retain();
+                }
+                return screenshot;
+            });
+            embeds.forEach((webhook, list) -> dispatcher.enqueue(webhook, list, shared));
+        }
+
+        static DiscordEmbed dropEmbed(String itemName, String npcName, String playerName, int quantity, long value) {
+            return new DiscordEmbed(itemName,
+                    quantity + "x " + itemName + " dropped by " + npcName + " for " + playerName,
+                    DiscordEmbed.COLOR_GREEN, System.currentTimeMillis(), null,
+                    value > 0 ? List.of(new DiscordEmbed.Field("Value", String.format("%,d gp", value), true)) : List.of());
+        }
+
+        private static WebhookRoute.Category routeCategory(byte kind) {
+            switch (kind) {
+                case LootClassifier.PRIORITY:
+                    return WebhookRoute.Category.PRIORITY;
+                case LootClassifier.VALUE:
+                    return WebhookRoute.Category.VALUABLE_DROP;
+                case LootClassifier.FORTUNE:
+                    return WebhookRoute.Category.FORTUNE_BOX;
+                default:
+                    return WebhookRoute.Category.LOOT_RULE;
+            }
+        }
+    }
+
+    /** The only sink that runs on the client thread, since chat messages must be added there. */
+    static final class PrivateMessage implements NotificationSink {
+        private final Client client;
+        private final ClientThread clientThread;
+
+        PrivateMessage(Client client, ClientThread clientThread) {
+            this.client = client;
+            this.clientThread = clientThread;
+        }
+
+        @Override
+        public void onDrop(NotableDrop drop) {
+            if (!drop.settings.isPmEnabled() || !drop.wants(LootRule.PM)) return;
+            String message = "You received " + drop.quantity + "x " + drop.itemName + "!";
+            clientThread.invokeLater(() -> send(message));
+        }
+
+        @Override
+        public void onChatTrigger(LootSettingsSnapshot settings, ChatTrigger trigger, String message) {
+            if (settings.isPmEnabled()) clientThread.invokeLater(() -> send(message));
+        }
+
+        private void send(String message) {
+            client.addChatMessage(ChatMessageType.PRIVATECHAT, "<img=46> Loot", message, null);
+        }
+    }
+
+    static final class Tray implements NotificationSink {
+        private final TrayNotificationScheduler scheduler;
+
+        Tray(TrayNotificationScheduler scheduler) {
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        public void onDrop(NotableDrop drop) {
+            if (drop.settings.isTrayEnabled() && drop.wants(LootRule.TRAY)) {
+                scheduler.offer(drop.itemName, drop.quantity, drop.isPriority());
+            }
+        }
+
+        @Override
+        public void onChatTrigger(LootSettingsSnapshot settings, ChatTrigger trigger, String message) {
+        }
+    }
+
+    static final class Sound implements NotificationSink {
+        private final SoundEngine engine;
+
+        Sound(SoundEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void onDrop(NotableDrop drop) {
+            if (!drop.settings.isSoundEnabled() || !drop.wants(LootRule.SOUND)) return;
+            engine.setSoundFiles(drop.settings.getSoundFiles());
+            engine.play(SoundEngine.tierOf(drop.kind));
+        }
+
+        @Override
+        public void onChatTrigger(LootSettingsSnapshot settings, ChatTrigger trigger, String message) {
+            if (!settings.isSoundEnabled()) return;
+            engine.setSoundFiles(settings.getSoundFiles());
+            engine.play(SoundEngine.tierOf(trigger.getKind()));
+        }
+    }
+
+    static final class Feed implements NotificationSink {
+        private final DiscordLootPanel panel;
+
+        Feed(DiscordLootPanel panel) {
+            this.panel = panel;
+        }
+
+        @Override
+        public void onDrop(NotableDrop drop) {
+            panel.addLootFeed(drop.itemId, drop.itemName, drop.npcName, drop.quantity);
+        }
+
+        @Override
+        public void onChatTrigger(LootSettingsSnapshot settings, ChatTrigger trigger, String message) {
+            panel.addLootFeedForPet(message);
+        }
+    }
+}
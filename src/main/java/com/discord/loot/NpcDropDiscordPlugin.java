@@ -7,10 +7,13 @@ import net.runelite.api.events.ChatMessage;
 import net.runelite.client.callback.ClientThread;
 import net.runelite.client.eventbus.Subscribe;
 import net.runelite.client.events.ClientShutdown;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.game.ItemStack;
 import net.runelite.client.plugins.Plugin;
 import net.runelite.client.plugins.PluginDescriptor;
 import net.runelite.client.plugins.loottracker.LootReceived;
 import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.DrawManager;
 import net.runelite.client.ui.NavigationButton;
 
 import javax.imageio.ImageIO;
@@ -18,22 +21,26 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.TrayIcon.MessageType;
 import java.awt.image.BufferedImage;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
 import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 @PluginDescriptor(
         name = "August Extended Loot Notifications",
         description = "Send loot information to Discord, PM, tray, and sound."
 )
 public class NpcDropDiscordPlugin extends Plugin {
+    static final Path PLUGIN_DIR = Path.of(System.getProperty("user.home"), ".augustrsps", "plugins");
 
     @Inject
     private Client client;
@@ -41,45 +48,237 @@ public class NpcDropDiscordPlugin extends Plugin {
     private ClientThread clientThread;
     @Inject
     private ClientToolbar clientToolbar;
+    @Inject
+    private ItemManager itemManager;
+    @Inject
+    private DrawManager drawManager;
 
     private static DiscordLootPanel panel;
     private NavigationButton navButton;
-    private static BufferedImage trayIconImage;
-    private static TrayIcon trayIcon;
+    private static volatile TrayIcon trayIcon;
+    private static CompletableFuture<TrayIcon> trayRegistered;
+
+    private static final Duration SHUTDOWN_DRAIN_DEADLINE = Duration.ofSeconds(2);
+    private static final int DEDUP_CAPACITY = 1024;
+    private static final int STARTUP_BUFFER_LIMIT = 512;
+
+    // Startup and teardown of the components below hold this lock. shutDown bumps the generation, so
+    // a start still waiting on settings knows not to build anything; built says there's work to undo.
+    private static final Object lifecycle = new Object();
+    private static int generation;
+    private static boolean built;
+    // Built once settings have loaded; pipelineReady publishes them to the event handlers.
+    private static volatile boolean pipelineReady;
+    private static CompletableFuture<Void> pipelineStarted;
+    private static CompletableFuture<Void> pipelineStopped = CompletableFuture.completedFuture(null);
+    private static PipelineMetrics metrics;
+    private static WebhookTransport transport;
+    private static NotificationOutbox outbox;
+    private static DiscordDispatcher dispatcher;
+    // Null unless shared dispatch is enabled; webhookQueue is whichever of the two notifications go through.
+    private static SharedDispatcher sharedDispatcher;
+    private static WebhookQueue webhookQueue;
+    private static TrayNotificationScheduler trayScheduler;
+    private static LootHistoryStore historyStore;
+    private static DropStatistics statistics;
+    private static ScheduledExecutorService digestExecutor;
+    private static LootEventPipeline pipeline;
+    private static ScreenshotCapture screenshots;
+    private static SoundEngine soundEngine;
+
+    private ItemPriceTable priceTable;
+    private ItemNameIndex itemNames;
+    // Client thread only.
+    private final DuplicateFilter duplicates = new DuplicateFilter(DEDUP_CAPACITY);
+    // Client thread only: LootReceived and game ChatMessage events seen before the pipeline is ready.
+    private final Deque<Object> startupBuffer = new ArrayDeque<>();
+
+    // Decoded on first use and kept for the client session; the navigation button and tray icon share it.
+    private static final class Icon {
+        static final BufferedImage IMAGE = load();
+
+        private static BufferedImage load() {
+            try (InputStream in = NpcDropDiscordPlugin.class.getResourceAsStream("/icon.png")) {
+                BufferedImage image = in == null ? null : ImageIO.read(in);
+                if (image != null) return image;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
+        }
+    }
 
-    private static final BlockingQueue<String> notifQueue = new LinkedBlockingQueue<>();
-    private static volatile boolean workerRunning = false;
+    @Override
+    protected void startUp() throws Exception {
+        long start = System.nanoTime();
+        metrics = new PipelineMetrics();
+        // Only the settings sections are built here; the rest waits for the panel to be opened.
+        panel = new DiscordLootPanel();
+        panel.setMetrics(metrics);
+        setupNavigationButton();
+
+        priceTable = new ItemPriceTable(client, clientThread, itemManager);
+        itemNames = new ItemNameIndex(client, clientThread);
+        panel.setItemNames(itemNames);
+        itemNames.start();
+
+        // The tray and the settings file are slow to touch, so both happen in the background. Loot
+        // that arrives meanwhile is buffered and replayed once the pipeline is up.
+        int started;
+        synchronized (lifecycle) {
+            started = ++generation;
+        }
+        trayRegistered = CompletableFuture.supplyAsync(NpcDropDiscordPlugin::registerTrayIcon);
+        // Async, since the settings complete on the EDT and opening the outbox is file I/O.
+        pipelineStarted = panel.loadSettings().thenAcceptAsync(settings -> {
+            if (startPipeline(settings, started)) metrics.startupReadyNanos = System.nanoTime() - start;
+        });
+        pipelineStarted.exceptionally(e -> {
+            System.err.println("Discord Loot Notifier failed to start:");
+            e.printStackTrace();
+            return null;
+        });
+        metrics.startupEnableNanos = System.nanoTime() - start;
+        System.out.println("Discord Loot Notifier started!");
+    }
 
-    private final ExecutorService discordExecutor = Executors.newSingleThreadExecutor();
+    private static TrayIcon registerTrayIcon() {
+        if (!SystemTray.isSupported()) return null;
+        TrayIcon icon = new TrayIcon(Icon.IMAGE, "Loot Tracker");
+        icon.setImageAutoSize(true);
+        try {
+            SystemTray.getSystemTray().add(icon);
+            trayIcon = icon;
+            return icon;
+        } catch (AWTException e) {
+            System.err.println("Failed to add tray icon, tray notifications are disabled: " + e.getMessage());
+            return null;
+        }
+    }
 
+    private static void removeTrayIcon(TrayIcon icon) {
+        if (icon == null) return;
+        SystemTray.getSystemTray().remove(icon);
+        // A quick re-enable may already have registered the next one.
+        if (trayIcon == icon) trayIcon = null;
+    }
 
-    private static final Set<String> PET_MESSAGES = Set.of(
-            "You have a funny feeling like you're being followed",
-            "You feel something weird sneaking into your backpack",
-            "You have a funny feeling like you would have been followed"
-    );
+    /** Builds the pipeline unless the plugin was shut down meanwhile, and returns whether it did. */
+    private boolean startPipeline(LootSettingsSnapshot settings, int started) {
+        synchronized (lifecycle) {
+            if (generation != started) return false;
+            // Anything left over belongs to a session that's already been torn down.
+            built = true;
+            clearComponents();
+            buildPipeline(settings);
+            pipelineReady = true;
+        }
+        clientThread.invokeLater(this::replayStartupBuffer);
+        return true;
+    }
 
-    @Override
-    protected void startUp() throws Exception {
-        panel = new DiscordLootPanel();
-        panel.loadSettings();
-        panel.applySettingsToUI();
-
-        // Persistent TrayIcon
-        if (SystemTray.isSupported()) {
-            SystemTray tray = SystemTray.getSystemTray();
-            try {
-                trayIconImage = ImageIO.read(getClass().getResourceAsStream("/icon.png"));
-            } catch (Exception e) {
-                trayIconImage = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
-            }
-            trayIcon = new TrayIcon(trayIconImage, "Loot Tracker");
-            trayIcon.setImageAutoSize(true);
-            tray.add(trayIcon);
+    // Caller holds the lifecycle lock.
+    private void buildPipeline(LootSettingsSnapshot settings) {
+        transport = new WebhookTransport(
+                Duration.ofSeconds(settings.getWebhookConnectTimeoutSeconds()),
+                Duration.ofSeconds(settings.getWebhookRequestTimeoutSeconds()),
+                settings.getWebhookMaxInFlight());
+        outbox = new NotificationOutbox(PLUGIN_DIR.resolve("discord_loot_outbox.log"));
+        dispatcher = new DiscordDispatcher(transport, outbox, metrics);
+        historyStore = new LootHistoryStore(PLUGIN_DIR);
+        historyStore.open().exceptionally(e -> {
+            System.err.println("Loot history disabled: " + e.getMessage());
+            return null;
+        });
+        panel.setHistoryStore(historyStore);
+        statistics = new DropStatistics();
+        panel.setStatistics(statistics);
+        digestExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LootDigest");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long digestInterval = Math.max(1, settings.getDigestIntervalMinutes());
+        digestExecutor.scheduleAtFixedRate(NpcDropDiscordPlugin::sendDigest, digestInterval, digestInterval, TimeUnit.MINUTES);
+        trayScheduler = new TrayNotificationScheduler(NpcDropDiscordPlugin::displayTrayMessage,
+                settings.getTrayMinIntervalSeconds() * 1000L, metrics);
+        priceTable.start(Duration.ofMinutes(settings.getPriceRefreshMinutes()));
+        screenshots = new ScreenshotCapture(clientThread, drawManager, metrics);
+        if (settings.isSharedDispatchEnabled()) {
+            sharedDispatcher = new SharedDispatcher(settings.getSharedDispatchPort(), dispatcher, outbox, screenshots, metrics);
+            sharedDispatcher.start();
+            webhookQueue = sharedDispatcher;
+        } else {
+            sharedDispatcher = null;
+            webhookQueue = dispatcher;
+        }
+        soundEngine = new SoundEngine();
+        // Decoded now, so the first alert doesn't wait on file I/O.
+        soundEngine.setSoundFiles(settings.getSoundFiles());
+        pipeline = new LootEventPipeline(client, priceTable, statistics, historyStore, metrics, List.of(
+                new NotificationSinks.Discord(webhookQueue, screenshots),
+                new NotificationSinks.PrivateMessage(client, clientThread),
+                new NotificationSinks.Tray(trayScheduler),
+                new NotificationSinks.Sound(soundEngine),
+                new NotificationSinks.Feed(panel)));
+        try {
+            List<NotificationOutbox.Entry> undelivered = outbox.open();
+            if (sharedDispatcher != null) sharedDispatcher.resend(undelivered);
+            else dispatcher.resend(undelivered);
+        } catch (IOException e) {
+            System.err.println("Failed to open notification outbox, undelivered notifications won't survive a restart.");
+            e.printStackTrace();
         }
+    }
 
-        setupNavigationButton("/icon.png");
-        System.out.println("Discord Loot Notifier started!");
+    // Caller holds the lifecycle lock.
+    private static void clearComponents() {
+        transport = null;
+        outbox = null;
+        dispatcher = null;
+        sharedDispatcher = null;
+        webhookQueue = null;
+        trayScheduler = null;
+        historyStore = null;
+        statistics = null;
+        digestExecutor = null;
+        pipeline = null;
+        screenshots = null;
+        soundEngine = null;
+    }
+
+    /**
+     * Stops whatever {@link #startPipeline} built, even if it failed halfway. Everything shares one
+     * drain deadline, and this runs in the background, so a slow Discord never holds up the EDT.
+     */
+    private static void stopPipeline() {
+        synchronized (lifecycle) {
+            if (!built) return;
+            built = false;
+            long deadline = System.nanoTime() + SHUTDOWN_DRAIN_DEADLINE.toNanos();
+            if (pipeline != null) pipeline.shutdown(SHUTDOWN_DRAIN_DEADLINE);
+            if (screenshots != null) screenshots.shutdown();
+            if (soundEngine != null) soundEngine.shutdown();
+            if (trayScheduler != null) trayScheduler.shutdown();
+            if (digestExecutor != null) digestExecutor.shutdownNow();
+
+            if (dispatcher != null) dispatcher.shutdown(Duration.ofNanos(deadline - System.nanoTime()));
+            // After the drain, so followers are told about everything this client delivered for them.
+            if (sharedDispatcher != null) sharedDispatcher.shutdown();
+            if (transport != null) transport.shutdown(Duration.ofNanos(deadline - System.nanoTime()));
+            if (outbox != null) outbox.close();
+            if (historyStore != null) historyStore.close();
+        }
+    }
+
+    /** Completes once settings are applied and loot events are being processed. */
+    static CompletableFuture<Void> whenStarted() {
+        return pipelineStarted;
+    }
+
+    /** Completes once everything the last shutdown stopped has drained and closed. */
+    static CompletableFuture<Void> whenStopped() {
+        return pipelineStopped;
     }
 
     @Override
@@ -89,12 +288,24 @@ public class NpcDropDiscordPlugin extends Plugin {
             navButton = null;
         }
 
-        panel.saveSettings();
-
-        if (SystemTray.isSupported() && trayIcon != null) {
-            SystemTray.getSystemTray().remove(trayIcon);
-            trayIcon = null;
+        // Nothing here waits: the EDT may be what a loading start is waiting on to apply settings.
+        synchronized (lifecycle) {
+            generation++;
+            pipelineReady = false;
         }
+        priceTable.shutdown();
+        itemNames.shutdown();
+
+        clientThread.invokeLater(startupBuffer::clear);
+
+        panel.closeSettingsStore();
+        trayRegistered.thenAccept(NpcDropDiscordPlugin::removeTrayIcon);
+        pipelineStopped = CompletableFuture.runAsync(NpcDropDiscordPlugin::stopPipeline);
+        pipelineStopped.exceptionally(e -> {
+            System.err.println("Discord Loot Notifier did not stop cleanly:");
+            e.printStackTrace();
+            return null;
+        });
 
         System.out.println("Discord Loot Notifier stopped!");
     }
@@ -107,196 +318,143 @@ public class NpcDropDiscordPlugin extends Plugin {
 
     @Subscribe
     public void onLootReceived(LootReceived event) {
-        String npcName = event.getName();
-        String playerName = client.getLocalPlayer().getName();
-
-        event.getItems().forEach(itemStack -> {
-            String itemName = client.getItemDefinition(itemStack.getId()).getName();
-            int quantity = itemStack.getQuantity();
-            boolean isPriority = panel.getPriorityDrops().contains(itemName.toLowerCase());
-
-            if (!isPriority && panel.isFortuneEnabled()) {
-                String lower = itemName.toLowerCase();
-                if (!(panel.isSlayerEnabled() && lower.contains("slayer") && lower.contains("box"))) {
-                    if (lower.contains("box") || lower.contains("cache") || lower.contains("crate") ||
-                            lower.contains("pack") || lower.contains("present")) {
-                        isPriority = true;
-                    }
-                }
-            }
-
-            if (isPriority) {
-                clientThread.invokeLater(() -> {
-                    if (panel.isPmEnabled()) {
-                        sendPrivateMessage(itemName, quantity);
-                    }
-                    if (panel.isTrayEnabled()) {
-                        showTrayNotification(itemName, quantity);
-                    }
-                    if (panel.isSoundEnabled()) {
-                        panel.playSound();
-                    }
-                    panel.addLootFeed(itemName, npcName);
-                });
-                if (panel.isDiscordEnabled()) {
-                    discordExecutor.submit(() ->
-                            sendDiscordNotification(itemName, npcName, playerName, quantity)
-                    );
-                }
-            }
-        });
+        if (!pipelineReady) {
+            bufferUntilReady(event);
+            return;
+        }
+        if (!startupBuffer.isEmpty() && !replayStartupBuffer()) {
+            bufferUntilReady(event);
+            return;
+        }
+        handleLoot(event);
     }
 
     @Subscribe
     public void onChatMessage(ChatMessage event) {
         if (event.getType() != ChatMessageType.GAMEMESSAGE) return;
+        if (!pipelineReady) {
+            bufferUntilReady(event);
+            return;
+        }
+        if (!startupBuffer.isEmpty() && !replayStartupBuffer()) {
+            bufferUntilReady(event);
+            return;
+        }
+        handleChat(event);
+    }
 
-        String chatMessage = event.getMessage();
-        Objects.requireNonNull(chatMessage);
-
-        if (panel.isPetsEnabled() && PET_MESSAGES.stream().anyMatch(chatMessage::contains)) {
-            clientThread.invokeLater(() -> {
-                if (panel.isDiscordEnabled()) sendDiscordNotificationForPet(chatMessage);
-                if (panel.isPmEnabled()) sendPrivateMessageForPet(chatMessage);
-                if (panel.isSoundEnabled()) panel.playSound();
-                panel.addLootFeedForPet(chatMessage);
-            });
+    private void bufferUntilReady(Object event) {
+        if (startupBuffer.size() >= STARTUP_BUFFER_LIMIT) {
+            startupBuffer.pollFirst();
+            metrics.droppedStartupEvents.increment();
         }
+        startupBuffer.addLast(event);
+        metrics.bufferedStartupEvents.increment();
     }
 
-    public static void showTrayNotification(String itemName, int quantity) {
-        notifQueue.offer(quantity + "x " + itemName);
-        startWorker();
+    /**
+     * Client thread; replays buffered events, oldest first, for as long as the pipeline has room, and
+     * returns whether the buffer is empty. Retried each tick until it is, and also tried before any
+     * new event so that one can't overtake the buffer.
+     */
+    private boolean replayStartupBuffer() {
+        while (pipelineReady && !startupBuffer.isEmpty() && pipeline.remainingCapacity() > 0) {
+            Object event = startupBuffer.pollFirst();
+            if (event instanceof LootReceived) handleLoot((LootReceived) event);
+            else handleChat((ChatMessage) event);
+        }
+        return startupBuffer.isEmpty() || !pipelineReady;
     }
 
-    private static synchronized void startWorker() {
-        if (workerRunning) return;
-        workerRunning = true;
-
-        Thread worker = new Thread(() -> {
-            try {
-                while (!notifQueue.isEmpty()) {
-                    String message = notifQueue.take();
-                    SwingUtilities.invokeLater(() -> {
-                        if (trayIcon != null)
-                            trayIcon.displayMessage("Loot Tracker", "You received " + message + "!", MessageType.INFO);
-                    });
-                    Thread.sleep(3000);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } finally {
-                workerRunning = false;
+    private void handleLoot(LootReceived event) {
+        long start = System.nanoTime();
+        LootSettingsSnapshot settings = panel.getSnapshot();
+        Collection<ItemStack> items = event.getItems();
+        if (settings.getDedupWindowTicks() > 0) {
+            // Some content fires LootReceived more than once per kill; repeats stop here, before any I/O.
+            if (duplicates.isRepeatedLoot(event.getName(), items, client.getTickCount(), settings.getDedupWindowTicks())) {
+                metrics.duplicateLootEvents.increment();
+                return;
             }
-        }, "TrayNotificationWorker");
-
-        worker.setDaemon(true);
-        worker.start();
+        }
+        // Classification and every notification happen on the pipeline worker.
+        // A full ring drops the event and counts it as dropped, so it isn't counted as handled too.
+        if (pipeline.publishLoot(settings, event.getName(), client.getLocalPlayer().getName(),
+                event.getAmount(), items)) {
+            metrics.lootEvents.increment();
+            metrics.lootHandler.recordNanos(System.nanoTime() - start);
+        }
     }
 
-    public static void clearNotificationQueue() {
-        notifQueue.clear();
+    private void handleChat(ChatMessage event) {
+        String chatMessage = event.getMessage();
+        Objects.requireNonNull(chatMessage);
+        LootSettingsSnapshot settings = panel.getSnapshot();
+        // Matching here is a single allocation-free pass, and keeps ordinary chat out of the pipeline.
+        ChatTrigger trigger = settings.getChatTriggers().match(chatMessage);
+        if (trigger == null) return;
+        if (trigger.getKind() == ChatTrigger.Kind.PET && settings.getDedupWindowTicks() > 0
+                && duplicates.isRepeatedMessage(chatMessage, client.getTickCount(), settings.getDedupWindowTicks())) {
+            metrics.duplicateMessages.increment();
+            return;
+        }
+        if (pipeline.publishChat(settings, trigger, chatMessage)) metrics.chatEvents.increment();
     }
 
-    private void sendPrivateMessage(String itemName, int quantity) {
-        client.addChatMessage(
-                ChatMessageType.PRIVATECHAT,
-                "<img=46> Loot",
-                "You received " + quantity + "x " + itemName + "!",
-                null
-        );
+    public static void showTrayNotification(String itemName, int quantity) {
+        showTrayNotification(itemName, quantity, true);
     }
 
-    private void sendPrivateMessageForPet(String chatMessage) {
-        client.addChatMessage(
-                ChatMessageType.PRIVATECHAT,
-                "<img=46> Loot",
-                chatMessage,
-                null
-        );
+    static void showTrayNotification(String itemName, int quantity, boolean priority) {
+        if (!pipelineReady) return;
+        trayScheduler.offer(itemName, quantity, priority);
     }
 
-    public static void sendDiscordNotification(String itemName, String npcName, String playerName, int quantity) {
-        String webhook = panel.getWebhookUrl();
-        if (webhook == null || webhook.isEmpty()) return;
-
-        try {
-            String json = "{"
-                    + "\"embeds\": [{"
-                    + "\"title\": \"" + escapeJson(itemName) + "\","
-                    + "\"description\": \"" + quantity + "x " + escapeJson(itemName) + " dropped by "
-                    + escapeJson(npcName) + " for " + escapeJson(playerName) + "\","
-                    + "\"color\": 65280"
-                    + "}]"
-                    + "}";
-
-            URL url = new URL(webhook);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.addRequestProperty("Content-Type", "application/json");
-
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(json.getBytes(StandardCharsets.UTF_8));
-            }
+    private static void displayTrayMessage(String message) {
+        SwingUtilities.invokeLater(() -> {
+            if (trayIcon != null)
+                trayIcon.displayMessage("Loot Tracker", message, MessageType.INFO);
+        });
+    }
 
-            int responseCode = connection.getResponseCode();
-            if (responseCode != 204 && responseCode != 200)
-                System.err.println("Discord webhook failed with code: " + responseCode);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+    static void playTestSound(SoundEngine.Tier tier) {
+        if (!pipelineReady) return;
+        soundEngine.setSoundFiles(panel.getSnapshot().getSoundFiles());
+        soundEngine.play(tier);
     }
 
-    public static void sendDiscordNotificationForPet(String chatMessage) {
-        String webhook = panel.getWebhookUrl();
-        if (webhook == null || webhook.isEmpty()) return;
+    public static void clearNotificationQueue() {
+        if (pipelineReady) trayScheduler.clear();
+    }
 
+    private static void sendDigest() {
+        // scheduleAtFixedRate cancels the schedule if this throws, so one bad period mustn't end the digest.
         try {
-            String json = "{"
-                    + "\"embeds\": [{"
-                    + "\"title\": \"Pet Drop\","
-                    + "\"description\": \"" + escapeJson(chatMessage) + "\","
-                    + "\"color\": 65280"
-                    + "}]"
-                    + "}";
-
-            URL url = new URL(webhook);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setDoOutput(true);
-            connection.addRequestProperty("Content-Type", "application/json");
-
-            try (OutputStream os = connection.getOutputStream()) {
-                os.write(json.getBytes(StandardCharsets.UTF_8));
+            // Always start a new period, so enabling the digest later doesn't send a backlog.
+            DiscordEmbed digest = statistics.takeDigest();
+            LootSettingsSnapshot settings = panel.getSnapshot();
+            if (digest != null && settings.isDigestEnabled() && settings.isDiscordEnabled()) {
+                for (String webhook : settings.getWebhookRouter()
+                        .route(WebhookRoute.Category.DIGEST, null, null, settings.getWebhookUrl())) {
+                    webhookQueue.enqueue(webhook, List.of(digest));
+                }
             }
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode != 204 && responseCode != 200)
-                System.err.println("Discord webhook failed with code: " + responseCode);
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
+            System.err.println("Failed to send the loot digest:");
             e.printStackTrace();
         }
     }
 
-    private static String escapeJson(String str) {
-        return str.replace("\\", "\\\\").replace("\"", "\\\"");
+    public static void sendDiscordNotification(String itemName, String npcName, String playerName, int quantity) {
+        if (!pipelineReady) return;
+        webhookQueue.enqueue(panel.getWebhookUrl(), List.of(NotificationSinks.Discord.dropEmbed(itemName, npcName, playerName, quantity, 0)));
     }
 
-    private void setupNavigationButton(String resourcePath) {
-        BufferedImage icon;
-        try {
-            icon = ImageIO.read(getClass().getResourceAsStream(resourcePath));
-            if (icon == null) icon = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
-        } catch (Exception e) {
-            e.printStackTrace();
-            icon = new BufferedImage(16, 16, BufferedImage.TYPE_INT_ARGB);
-        }
-
+    private void setupNavigationButton() {
         try {
             navButton = NavigationButton.builder()
                     .tooltip("Discord Loot Notifier")
-                    .icon(icon)
+                    .icon(Icon.IMAGE)
                     .priority(1)
                     .panel(panel)
                     .build();
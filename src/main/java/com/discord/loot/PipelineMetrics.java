@@ -0,0 +1,112 @@
+package com.discord.loot;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/** Counters and latency histograms for the notification pipeline, safe to update from any thread. */
+final class PipelineMetrics {
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    final LatencyHistogram lootHandler = new LatencyHistogram();
+    final LatencyHistogram lootWorker = new LatencyHistogram();
+    final LatencyHistogram webhookRoundTrip = new LatencyHistogram();
+    final LatencyHistogram screenshotEncode = new LatencyHistogram();
+    final LongAdder lootEvents = new LongAdder();
+    final LongAdder chatEvents = new LongAdder();
+    final LongAdder droppedLootEvents = new LongAdder();
+    final LongAdder duplicateLootEvents = new LongAdder();
+    final LongAdder duplicateMessages = new LongAdder();
+    final LongAdder webhookRequests = new LongAdder();
+    final LongAdder webhookRetries = new LongAdder();
+    final LongAdder webhookFailures = new LongAdder();
+    final LongAdder droppedNotifications = new LongAdder();
+    final LongAdder screenshots = new LongAdder();
+    final LongAdder skippedScreenshots = new LongAdder();
+    final LongAdder bufferedStartupEvents = new LongAdder();
+    final LongAdder droppedStartupEvents = new LongAdder();
+    // Embeds this client handed to the shared dispatcher, and embeds it delivered for other clients.
+    final LongAdder forwardedNotifications = new LongAdder();
+    final LongAdder relayedNotifications = new LongAdder();
+    volatile String sharedDispatchRole = "off";
+
+    private final AtomicLongArray responseCodes = new AtomicLongArray(600);
+    // Time spent in startUp, and from startUp until loot is being processed.
+    volatile long startupEnableNanos;
+    volatile long startupReadyNanos;
+    private volatile IntSupplier lootQueueDepth = () -> 0;
+    private volatile IntSupplier discordQueueDepth = () -> 0;
+    private volatile IntSupplier trayQueueDepth = () -> 0;
+
+    void recordResponseCode(int code) {
+        if (code >= 0 && code < responseCodes.length()) responseCodes.incrementAndGet(code);
+    }
+
+    void setLootQueueDepth(IntSupplier depth) {
+        lootQueueDepth = depth;
+    }
+
+    void setDiscordQueueDepth(IntSupplier depth) {
+        discordQueueDepth = depth;
+    }
+
+    void setTrayQueueDepth(IntSupplier depth) {
+        trayQueueDepth = depth;
+    }
+
+    String describe() {
+        StringBuilder text = new StringBuilder();
+        text.append("Loot events: ").append(lootEvents.sum())
+                .append(", chat triggers: ").append(chatEvents.sum())
+                .append(", dropped: ").append(droppedLootEvents.sum()).append('\n')
+                .append("Duplicates suppressed: ").append(duplicateLootEvents.sum()).append(" loot event(s), ")
+                .append(duplicateMessages.sum()).append(" message(s)").append('\n')
+                .append("onLootReceived: ").append(lootHandler.snapshot().describe(TimeUnit.MICROSECONDS)).append('\n')
+                .append("Loot worker: ").append(lootWorker.snapshot().describe(TimeUnit.MICROSECONDS)).append('\n')
+                .append("Loot queue: ").append(lootQueueDepth.getAsInt()).append('\n')
+                .append("Discord queue: ").append(discordQueueDepth.getAsInt()).append('\n')
+                .append("Tray queue: ").append(trayQueueDepth.getAsInt()).append('\n')
+                .append("Webhook requests: ").append(webhookRequests.sum())
+                .append(", retries: ").append(webhookRetries.sum())
+                .append(", failures: ").append(webhookFailures.sum()).append('\n')
+                .append("Webhook round trip: ").append(webhookRoundTrip.snapshot().describe(TimeUnit.MILLISECONDS)).append('\n')
+                .append("Dropped notifications: ").append(droppedNotifications.sum()).append('\n')
+                .append("Shared dispatch: ").append(sharedDispatchRole)
+                .append(", forwarded: ").append(forwardedNotifications.sum())
+                .append(", relayed: ").append(relayedNotifications.sum()).append('\n')
+                .append("Screenshots: ").append(screenshots.sum())
+                .append(", skipped: ").append(skippedScreenshots.sum()).append('\n')
+                .append("Screenshot capture: ").append(screenshotEncode.snapshot().describe(TimeUnit.MILLISECONDS)).append('\n')
+                .append("Startup: enable ").append(TimeUnit.NANOSECONDS.toMillis(startupEnableNanos)).append(" ms")
+                .append(", ready after ").append(TimeUnit.NANOSECONDS.toMillis(startupReadyNanos)).append(" ms").append('\n')
+                .append("Events buffered during startup: ").append(bufferedStartupEvents.sum())
+                .append(", dropped: ").append(droppedStartupEvents.sum()).append('\n')
+                .append("Response codes:");
+        boolean any = false;
+        for (int code = 0; code < responseCodes.length(); code++) {
+            long count = responseCodes.get(code);
+            if (count == 0) continue;
+            text.append(' ').append(code).append('=').append(count);
+            any = true;
+        }
+        if (!any) text.append(" none");
+        return text.append('\n').toString();
+    }
+
+    /** Writes the current report to a timestamped file in {@code directory} and returns its path. */
+    Path dump(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("discord_loot_metrics-" + LocalDateTime.now().format(FILE_TIME) + ".txt");
+        try (Writer writer = Files.newBufferedWriter(file)) {
+            writer.write(describe());
+        }
+        return file;
+    }
+}
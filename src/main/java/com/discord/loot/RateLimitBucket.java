@@ -0,0 +1,92 @@
+package com.discord.loot;
+
+/**
+ * Token bucket for a single webhook. Starts from Discord's documented webhook limit and is
+ * corrected from the X-RateLimit-* headers and Retry-After of every response.
+ */
+class RateLimitBucket {
+    private int capacity;
+    private long refillIntervalNanos;
+    private double tokens;
+    // System.nanoTime() values, which may wrap, so they're only ever compared by subtraction.
+    private long lastRefill;
+    private long blockedUntil;
+
+    RateLimitBucket(int capacity, long windowMillis) {
+        this.capacity = capacity;
+        this.refillIntervalNanos = windowMillis * 1_000_000L / capacity;
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        this.blockedUntil = lastRefill;
+    }
+
+    /**
+     * Returns how long to wait before a request may be sent, in milliseconds. A return of 0
+     * means a token was taken and the caller should send now.
+     */
+    synchronized long tryAcquire() {
+        long now = System.nanoTime();
+        if (now - blockedUntil < 0) {
+            return nanosToMillisCeil(blockedUntil - now);
+        }
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return nanosToMillisCeil((long) ((1 - tokens) * refillIntervalNanos));
+    }
+
+    synchronized void onRateLimitHeaders(String limit, String remaining, String resetAfter) {
+        long now = System.nanoTime();
+        try {
+            if (limit != null) {
+                int newCapacity = Integer.parseInt(limit.trim());
+                if (newCapacity > 0 && newCapacity != capacity) {
+                    refillIntervalNanos = refillIntervalNanos * capacity / newCapacity;
+                    capacity = newCapacity;
+                }
+            }
+            if (remaining != null) {
+                tokens = Math.min(tokens, Integer.parseInt(remaining.trim()));
+                if (tokens <= 0 && resetAfter != null) {
+                    block(now, parseSeconds(resetAfter));
+                }
+            }
+        } catch (NumberFormatException e) {
+            // Keep the local estimate if Discord sends something unexpected.
+        }
+    }
+
+    synchronized void onTooManyRequests(String retryAfter) {
+        long millis = 1000;
+        if (retryAfter != null) {
+            try {
+                millis = parseSeconds(retryAfter);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        tokens = 0;
+        block(System.nanoTime(), millis);
+    }
+
+    private void block(long now, long millis) {
+        long until = now + millis * 1_000_000L;
+        if (until - blockedUntil > 0) blockedUntil = until;
+        lastRefill = blockedUntil;
+    }
+
+    private void refill(long now) {
+        if (now - lastRefill <= 0) return;
+        tokens = Math.min(capacity, tokens + (double) (now - lastRefill) / refillIntervalNanos);
+        lastRefill = now;
+    }
+
+    private static long parseSeconds(String value) {
+        return (long) Math.ceil(Double.parseDouble(value.trim()) * 1000);
+    }
+
+    private static long nanosToMillisCeil(long nanos) {
+        return Math.max(1, (nanos + 999_999) / 1_000_000);
+    }
+}
@@ -0,0 +1,214 @@
+package com.discord.loot;
+
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.ui.DrawManager;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Grabs the next rendered frame and turns it into a JPEG to attach to a webhook message. Only the
+ * frame copy happens on the client thread; scaling and encoding run on a small pool, and each
+ * in-flight capture reuses the image buffers of one of a fixed number of slots.
+ *
+ * <p>Memory is bounded twice: at most {@link #FRAME_SLOTS} frames are held at once, and encoded
+ * images waiting in the dispatcher share a byte budget. A capture that would go over either is
+ * skipped and the notification is sent without a screenshot.
+ */
+final class ScreenshotCapture {
+    private static final int FRAME_SLOTS = 2;
+    private static final int MAX_WIDTH = 1280;
+    private static final float JPEG_QUALITY = 0.8f;
+    private static final long PENDING_BYTES_BUDGET = 8L << 20;
+    private static final long FRAME_TIMEOUT_MS = 2000;
+
+    private final ClientThread clientThread;
+    private final DrawManager drawManager;
+    private final PipelineMetrics metrics;
+    private final BlockingQueue<FrameSlot> slots = new ArrayBlockingQueue<>(FRAME_SLOTS);
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong nextId = new AtomicLong();
+    private final ExecutorService encoder = Executors.newFixedThreadPool(FRAME_SLOTS, r -> {
+        Thread thread = new Thread(r, "ScreenshotEncoder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * An encoded image shared by every message it's attached to. Each holder calls {@link #release}
+     * once; the bytes go back to the budget when the last one does.
+     */
+    final class Screenshot {
+        final String fileName;
+        final byte[] data;
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private Screenshot(String fileName, byte[] data) {
+            this.fileName = fileName;
+            this.data = data;
+        }
+
+        void retain() {
+            references.incrementAndGet();
+        }
+
+        void release() {
+            if (references.decrementAndGet() == 0) pendingBytes.addAndGet(-data.length);
+        }
+    }
+
+    // Buffers reused across captures; a slot belongs to one capture from frame copy to encoded bytes.
+    private static final class FrameSlot {
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(256 * 1024);
+        BufferedImage frame;
+        BufferedImage scaled;
+
+        FrameSlot() {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+        }
+
+        BufferedImage frame(int width, int height) {
+            if (frame == null || frame.getWidth() != width || frame.getHeight() != height) {
+                frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            return frame;
+        }
+
+        BufferedImage scaled(int width, int height) {
+            if (scaled == null || scaled.getWidth() != width || scaled.getHeight() != height) {
+                scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            return scaled;
+        }
+    }
+
+    ScreenshotCapture(ClientThread clientThread, DrawManager drawManager, PipelineMetrics metrics) {
+        this.clientThread = clientThread;
+        this.drawManager = drawManager;
+        this.metrics = metrics;
+        for (int i = 0; i < FRAME_SLOTS; i++) {
+            slots.add(new FrameSlot());
+        }
+    }
+
+    /**
+     * Captures the next frame. The future completes with {@code null} when the capture was skipped,
+     * failed, or the frame didn't arrive in time, so callers can always send without it.
+     */
+    CompletableFuture<Screenshot> capture() {
+        CompletableFuture<Screenshot> result = new CompletableFuture<>();
+        FrameSlot slot = pendingBytes.get() < PENDING_BYTES_BUDGET ? slots.poll() : null;
+        if (slot == null) {
+            metrics.skippedScreenshots.increment();
+            result.complete(null);
+            return result;
+        }
+        result.completeOnTimeout(null, FRAME_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        clientThread.invokeLater(() -> drawManager.requestNextFrameListener(image -> onFrame(slot, image, result)));
+        return result;
+    }
+
+    // Client thread: copy the frame out of the client's back buffer and get off the thread.
+    private void onFrame(FrameSlot slot, Image image, CompletableFuture<Screenshot> result) {
+        int width = image.getWidth(null);
+        int height = image.getHeight(null);
+        if (width <= 0 || height <= 0) {
+            slots.offer(slot);
+            result.complete(null);
+            return;
+        }
+        long start = System.nanoTime();
+        BufferedImage frame = slot.frame(width, height);
+        Graphics2D graphics = frame.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        try {
+            encoder.execute(() -> encode(slot, start, result));
+        } catch (RuntimeException e) {
+            slots.offer(slot);
+            result.complete(null);
+        }
+    }
+
+    private void encode(FrameSlot slot, long start, CompletableFuture<Screenshot> result) {
+        Screenshot screenshot = null;
+        try {
+            BufferedImage image = slot.frame;
+            if (image.getWidth() > MAX_WIDTH) {
+                int height = Math.max(1, Math.round(image.getHeight() * (float) MAX_WIDTH / image.getWidth()));
+                BufferedImage scaled = slot.scaled(MAX_WIDTH, height);
+                Graphics2D graphics = scaled.createGraphics();
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(image, 0, 0, MAX_WIDTH, height, null);
+                graphics.dispose();
+                image = scaled;
+            }
+
+            slot.out.reset();
+            try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(slot.out)) {
+                slot.writer.setOutput(stream);
+                slot.writer.write(null, new IIOImage(image, null, null), slot.param);
+            } finally {
+                slot.writer.setOutput(null);
+            }
+
+            screenshot = adopt(slot.out.toByteArray());
+            if (screenshot != null) {
+                metrics.screenshots.increment();
+                metrics.screenshotEncode.recordNanos(System.nanoTime() - start);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to encode screenshot: " + e);
+        } finally {
+            slots.offer(slot);
+        }
+        // Timed out meanwhile: nobody will attach it, so hand the bytes straight back.
+        if (!result.complete(screenshot) && screenshot != null) screenshot.release();
+    }
+
+    /** Drops the reference a capture's screenshot carries once it completes, for captures nobody will send. */
+    static void releaseWhenDone(CompletableFuture<Screenshot> capture) {
+        if (capture == null) return;
+        capture.thenAccept(screenshot -> {
+            if (screenshot != null) screenshot.release();
+        });
+    }
+
+    /**
+     * Wraps an encoded image, such as one another client captured, counted against the pending byte
+     * budget. Returns null, and counts it as skipped, if it doesn't fit.
+     */
+    Screenshot adopt(byte[] data) {
+        if (pendingBytes.addAndGet(data.length) > PENDING_BYTES_BUDGET) {
+            pendingBytes.addAndGet(-data.length);
+            metrics.skippedScreenshots.increment();
+            return null;
+        }
+        return new Screenshot("screenshot-" + nextId.incrementAndGet() + ".jpg", data);
+    }
+
+    void shutdown() {
+        encoder.shutdownNow();
+    }
+}
@@ -0,0 +1,140 @@
+package com.discord.loot;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Loads and saves {@link DiscordLootSettings} off the calling thread. Saves are debounced and
+ * serialized on the store's thread, written to a synced temp file and atomically moved over the
+ * settings file; the previous good file is kept as a backup that loading falls back to if the
+ * main file is unreadable.
+ */
+final class SettingsStore {
+    private static final long SAVE_DEBOUNCE_MS = 500;
+
+    private final Path file;
+    private final Path backup;
+    private final Path temp;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "DiscordLootSettings");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this: a copy of the newest settings not yet on disk.
+    private DiscordLootSettings pending;
+    private boolean saveScheduled;
+
+    SettingsStore(Path file) {
+        this.file = file;
+        this.backup = file.resolveSibling(file.getFileName() + ".bak");
+        this.temp = file.resolveSibling(file.getFileName() + ".tmp");
+    }
+
+    CompletableFuture<DiscordLootSettings> load() {
+        return CompletableFuture.supplyAsync(() -> {
+            DiscordLootSettings settings = read(file);
+            if (settings == null && Files.exists(backup)) {
+                System.err.println("Discord loot settings unreadable, restoring last known good copy");
+                settings = read(backup);
+            }
+            return settings != null ? settings : new DiscordLootSettings();
+        }, executor);
+    }
+
+    /** Copies {@code settings} now and writes them once edits have been quiet for a moment. */
+    void scheduleSave(DiscordLootSettings settings) {
+        DiscordLootSettings copy = settings.copy();
+        synchronized (this) {
+            pending = copy;
+            if (saveScheduled) return;
+            saveScheduled = true;
+        }
+        executor.schedule(this::writePending, SAVE_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Writes {@code settings} immediately and waits for it, e.g. on shutdown. */
+    void saveNow(DiscordLootSettings settings) {
+        DiscordLootSettings copy = settings.copy();
+        synchronized (this) {
+            pending = copy;
+        }
+        try {
+            executor.submit(this::writePending).get(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Writes {@code settings}, if not null, and then stops; returns without waiting for the write. */
+    void shutdown(DiscordLootSettings settings) {
+        if (settings != null) {
+            DiscordLootSettings copy = settings.copy();
+            synchronized (this) {
+                pending = copy;
+            }
+            executor.execute(this::writePending);
+        }
+        executor.shutdown();
+    }
+
+    private void writePending() {
+        DiscordLootSettings settings;
+        synchronized (this) {
+            saveScheduled = false;
+            settings = pending;
+            pending = null;
+        }
+        if (settings == null) return;
+
+        try {
+            Files.createDirectories(file.getParent());
+            // Synced before the move, so a power cut can't leave an empty settings file behind.
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer data = StandardCharsets.UTF_8.encode(gson.toJson(settings));
+                while (data.hasRemaining()) {
+                    out.write(data);
+                }
+                out.force(true);
+            }
+            // Only a file that still parses is worth keeping as the fallback.
+            if (Files.exists(file) && read(file) != null) {
+                Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private DiscordLootSettings read(Path path) {
+        if (!Files.exists(path)) return null;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, DiscordLootSettings.class);
+        } catch (IOException | JsonParseException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
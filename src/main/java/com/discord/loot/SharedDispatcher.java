@@ -0,0 +1,535 @@
+package com.discord.loot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets every client on one machine deliver through a single {@link DiscordDispatcher}, so webhooks
+ * they have in common share one rate-limit bucket and one batching queue instead of each client
+ * tripping Discord's limits on its own. Clients race to bind a loopback port: the winner is the
+ * leader and delivers for everyone, the others connect to it and forward their embeds.
+ *
+ * <p>A follower journals what it forwards in its own outbox and holds on to it until the leader
+ * reports it delivered. When the leader exits, the followers elect a new one and hand it whatever
+ * is still unacknowledged, or deliver it themselves if they win. Delivery is at least once: an
+ * embed the old leader sent just before exiting can go out a second time.
+ *
+ * <p>Only Discord webhook URLs are shared; the leader refuses to relay anything else, and a follower
+ * delivers any other URL itself.
+ */
+final class SharedDispatcher implements WebhookQueue {
+    private static final InetAddress LOOPBACK = InetAddress.getLoopbackAddress();
+    private static final int MAGIC = 0x444C5431;
+    private static final byte EMBEDS = 1;
+    private static final byte ACK = 2;
+    private static final int MAX_FRAME_BYTES = 16 << 20;
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final long ELECTION_RETRY_MS = 250;
+    private static final int MAX_ELECTION_ATTEMPTS = 20;
+    // Anything on this machine can connect to the port, so the leader only posts to Discord webhooks.
+    private static final List<String> RELAYED_URL_PREFIXES = List.of(
+            "https://discord.com/api/webhooks/",
+            "https://ptb.discord.com/api/webhooks/",
+            "https://canary.discord.com/api/webhooks/",
+            "https://discordapp.com/api/webhooks/");
+
+    private enum Role {
+        ELECTING, LEADER, FOLLOWER, STANDALONE
+    }
+
+    private static final class Frame {
+        final long sequence;
+        final String webhookUrl;
+        final List<DiscordEmbed> embeds;
+        final long[] outboxIds;
+        // Null if there's no screenshot; the frame owns the reference it completes with.
+        final CompletableFuture<ScreenshotCapture.Screenshot> screenshot;
+        // Executor thread only: written to the current leader.
+        boolean sent;
+
+        Frame(long sequence, String webhookUrl, List<DiscordEmbed> embeds, long[] outboxIds,
+              CompletableFuture<ScreenshotCapture.Screenshot> screenshot) {
+            this.sequence = sequence;
+            this.webhookUrl = webhookUrl;
+            this.embeds = embeds;
+            this.outboxIds = outboxIds;
+            this.screenshot = screenshot;
+        }
+
+        boolean ready() {
+            return screenshot == null || screenshot.isDone();
+        }
+
+        ScreenshotCapture.Screenshot image() {
+            return screenshot == null ? null : screenshot.getNow(null);
+        }
+    }
+
+    private final int port;
+    private final DiscordDispatcher dispatcher;
+    private final NotificationOutbox outbox;
+    private final ScreenshotCapture screenshots;
+    private final PipelineMetrics metrics;
+    // Elections and every write to the leader happen here, in order.
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "SharedDispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by this. Frames stay here from enqueue until the leader acknowledges them.
+    private final Map<Long, Frame> unacknowledged = new LinkedHashMap<>();
+    private Role role = Role.ELECTING;
+    private long nextSequence = 1;
+    private boolean running = true;
+    private ServerSocket server;
+    private Socket upstream;
+
+    // Executor thread only.
+    private DataOutputStream upstreamOut;
+    private final ByteArrayOutputStream frameBytes = new ByteArrayOutputStream(1024);
+    private int failedElections;
+
+    // Leader only: connections from followers, closed on shutdown.
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+
+    SharedDispatcher(int port, DiscordDispatcher dispatcher, NotificationOutbox outbox,
+                     ScreenshotCapture screenshots, PipelineMetrics metrics) {
+        this.port = port;
+        this.dispatcher = dispatcher;
+        this.outbox = outbox;
+        this.screenshots = screenshots;
+        this.metrics = metrics;
+    }
+
+    /** Starts the first election in the background; embeds queued meanwhile wait for its outcome. */
+    void start() {
+        publishRole(Role.ELECTING);
+        executor.execute(this::elect);
+    }
+
+    @Override
+    public void enqueue(String webhookUrl, List<DiscordEmbed> embeds,
+                        CompletableFuture<ScreenshotCapture.Screenshot> screenshot) {
+        if (webhookUrl == null || webhookUrl.isEmpty() || embeds.isEmpty()) {
+            ScreenshotCapture.releaseWhenDone(screenshot);
+            return;
+        }
+
+        synchronized (this) {
+            if (role == Role.LEADER || role == Role.STANDALONE || !isRelayed(webhookUrl)) {
+                dispatcher.enqueue(webhookUrl, embeds, screenshot);
+                return;
+            }
+            long[] outboxIds = new long[embeds.size()];
+            for (int i = 0; i < outboxIds.length; i++) {
+                outboxIds[i] = outbox.append(webhookUrl, embeds.get(i));
+            }
+            track(new Frame(nextSequence++, webhookUrl, List.copyOf(embeds), outboxIds, screenshot));
+        }
+        if (screenshot != null) screenshot.whenComplete((image, error) -> submit(this::sendReady));
+    }
+
+    /** Queues notifications recovered from this client's outbox, which are already journaled. */
+    synchronized void resend(List<NotificationOutbox.Entry> entries) {
+        if (role == Role.LEADER || role == Role.STANDALONE) {
+            dispatcher.resend(entries);
+            return;
+        }
+        List<NotificationOutbox.Entry> local = new ArrayList<>();
+        for (NotificationOutbox.Entry entry : entries) {
+            if (isRelayed(entry.webhookUrl)) {
+                track(new Frame(nextSequence++, entry.webhookUrl, List.of(entry.embed), new long[]{entry.id}, null));
+            } else {
+                local.add(entry);
+            }
+        }
+        dispatcher.resend(local);
+    }
+
+    // Caller holds the lock.
+    private void track(Frame frame) {
+        unacknowledged.put(frame.sequence, frame);
+        if (role == Role.FOLLOWER) submit(this::sendReady);
+    }
+
+    /**
+     * Stops taking part: the leader stops accepting and drops its followers, which then elect a new
+     * one. Call it after the local dispatcher has drained, so followers get acknowledgements for
+     * what it delivered. Anything still unacknowledged stays in the outbox for the next start.
+     */
+    void shutdown() {
+        List<Closeable> sockets = new ArrayList<>(followers);
+        synchronized (this) {
+            running = false;
+            sockets.add(server);
+            sockets.add(upstream);
+            for (Frame frame : unacknowledged.values()) {
+                ScreenshotCapture.releaseWhenDone(frame.screenshot);
+            }
+            unacknowledged.clear();
+        }
+        executor.shutdownNow();
+        for (Closeable socket : sockets) {
+            closeQuietly(socket);
+        }
+        metrics.sharedDispatchRole = "off";
+    }
+
+    private void elect() {
+        if (!isRunning()) return;
+        ServerSocket candidate = null;
+        try {
+            candidate = new ServerSocket();
+            candidate.bind(new InetSocketAddress(LOOPBACK, port));
+            becomeLeader(candidate);
+            return;
+        } catch (IOException e) {
+            closeQuietly(candidate);
+        }
+
+        try {
+            becomeFollower(connect());
+            return;
+        } catch (ProtocolException e) {
+            System.err.println("Port " + port + " is taken by another program, delivering notifications from this client only");
+            becomeStandalone();
+            return;
+        } catch (IOException e) {
+            // The leader exited between our bind and connect, or is too busy to answer; try again.
+        }
+
+        if (++failedElections >= MAX_ELECTION_ATTEMPTS) {
+            System.err.println("Could not reach the shared dispatcher on port " + port + ", delivering notifications from this client only");
+            becomeStandalone();
+            return;
+        }
+        long delay = ELECTION_RETRY_MS + ThreadLocalRandom.current().nextLong(ELECTION_RETRY_MS);
+        try {
+            executor.schedule(this::elect, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down.
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(LOOPBACK, port), CONNECT_TIMEOUT_MS);
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(CONNECT_TIMEOUT_MS);
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(MAGIC);
+            out.flush();
+            int magic = new DataInputStream(socket.getInputStream()).readInt();
+            if (magic != MAGIC) throw new ProtocolException("Unexpected handshake " + Integer.toHexString(magic));
+            socket.setSoTimeout(0);
+            return socket;
+        } catch (IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    private void becomeLeader(ServerSocket socket) {
+        synchronized (this) {
+            if (!running) {
+                closeQuietly(socket);
+                return;
+            }
+            server = socket;
+            role = Role.LEADER;
+            // Under the lock, so nothing enqueued from now on can overtake them.
+            deliverUnacknowledged();
+        }
+        failedElections = 0;
+        publishRole(Role.LEADER);
+        Thread acceptor = new Thread(() -> accept(socket), "SharedDispatcherAccept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        System.out.println("Delivering Discord notifications for every client on port " + port);
+    }
+
+    private void becomeFollower(Socket socket) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        synchronized (this) {
+            if (!running) {
+                closeQuietly(socket);
+                return;
+            }
+            upstream = socket;
+            role = Role.FOLLOWER;
+            for (Frame frame : unacknowledged.values()) {
+                frame.sent = false;
+            }
+        }
+        upstreamOut = out;
+        failedElections = 0;
+        publishRole(Role.FOLLOWER);
+        Thread reader = new Thread(() -> readAcknowledgements(socket), "SharedDispatcherUpstream");
+        reader.setDaemon(true);
+        reader.start();
+        // A new leader knows nothing of what the old one was sent.
+        sendReady();
+    }
+
+    private void becomeStandalone() {
+        synchronized (this) {
+            if (!running) return;
+            role = Role.STANDALONE;
+            deliverUnacknowledged();
+        }
+        publishRole(Role.STANDALONE);
+    }
+
+    // Caller holds the lock. Hands frames that were meant for a leader to the local dispatcher.
+    private void deliverUnacknowledged() {
+        for (Frame frame : unacknowledged.values()) {
+            dispatcher.enqueue(frame.webhookUrl, frame.embeds, frame.screenshot, () -> {
+                for (long id : frame.outboxIds) {
+                    outbox.ack(id);
+                }
+            });
+        }
+        unacknowledged.clear();
+    }
+
+    /**
+     * Writes every frame not yet sent to the leader, in order, up to the first one still waiting
+     * for its screenshot; the frames behind it follow once it completes.
+     */
+    private void sendReady() {
+        List<Frame> ready = new ArrayList<>();
+        synchronized (this) {
+            if (role != Role.FOLLOWER) return;
+            for (Frame frame : unacknowledged.values()) {
+                if (!frame.ready()) break;
+                if (!frame.sent) ready.add(frame);
+            }
+        }
+        for (Frame frame : ready) {
+            frame.sent = true;
+            send(frame);
+        }
+    }
+
+    private void send(Frame frame) {
+        try {
+            frameBytes.reset();
+            DataOutputStream out = new DataOutputStream(frameBytes);
+            out.writeByte(EMBEDS);
+            out.writeLong(frame.sequence);
+            out.writeUTF(frame.webhookUrl);
+            out.writeShort(frame.embeds.size());
+            for (DiscordEmbed embed : frame.embeds) {
+                NotificationOutbox.writeEmbed(out, embed);
+            }
+            ScreenshotCapture.Screenshot screenshot = frame.image();
+            byte[] image = screenshot == null ? null : screenshot.data;
+            out.writeInt(image == null ? 0 : image.length);
+            if (image != null) out.write(image);
+
+            upstreamOut.writeInt(frameBytes.size());
+            frameBytes.writeTo(upstreamOut);
+            upstreamOut.flush();
+        } catch (IOException e) {
+            // The reader sees the broken connection too and starts the failover.
+            synchronized (this) {
+                closeQuietly(upstream);
+            }
+        }
+    }
+
+    private void readAcknowledgements(Socket socket) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            while (true) {
+                byte[] frame = readFrame(in);
+                if (frame[0] == ACK && frame.length >= 9) onAcknowledged(readLong(frame, 1));
+            }
+        } catch (IOException e) {
+            // Leader gone, or we're shutting down.
+        }
+        submit(() -> onUpstreamLost(socket));
+    }
+
+    private void onAcknowledged(long sequence) {
+        Frame frame;
+        synchronized (this) {
+            frame = unacknowledged.remove(sequence);
+        }
+        if (frame == null) return;
+        for (long id : frame.outboxIds) {
+            outbox.ack(id);
+        }
+        ScreenshotCapture.Screenshot screenshot = frame.image();
+        if (screenshot != null) screenshot.release();
+        metrics.forwardedNotifications.add(frame.embeds.size());
+    }
+
+    private void onUpstreamLost(Socket socket) {
+        synchronized (this) {
+            if (upstream != socket || !running) return;
+            upstream = null;
+            role = Role.ELECTING;
+        }
+        upstreamOut = null;
+        closeQuietly(socket);
+        publishRole(Role.ELECTING);
+        System.out.println("Lost the shared Discord dispatcher, electing a new one");
+        elect();
+    }
+
+    private void accept(ServerSocket socket) {
+        while (true) {
+            Socket follower;
+            try {
+                follower = socket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            Thread peer = new Thread(() -> serve(follower), "SharedDispatcherPeer");
+            peer.setDaemon(true);
+            peer.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        followers.add(socket);
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            if (in.readInt() != MAGIC) return;
+            synchronized (out) {
+                out.writeInt(MAGIC);
+                out.flush();
+            }
+            while (isRunning()) {
+                relay(readFrame(in), out);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The follower exited, or our dispatcher is shutting down; it resends anything unacknowledged.
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    private void relay(byte[] frame, DataOutputStream out) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        if (in.readByte() != EMBEDS) return;
+        long sequence = in.readLong();
+        String webhookUrl = in.readUTF();
+        int count = in.readUnsignedShort();
+        List<DiscordEmbed> embeds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            embeds.add(NotificationOutbox.readEmbed(in));
+        }
+        int imageLength = in.readInt();
+        // Checked before allocating, so a bad length can't claim more than the frame holds.
+        if (imageLength < 0 || imageLength > in.available()) throw new ProtocolException("Bad image length " + imageLength);
+        if (!isRelayed(webhookUrl)) {
+            System.err.println("Shared dispatcher refused to relay to a URL that is not a Discord webhook");
+            metrics.droppedNotifications.add(count);
+            acknowledge(out, sequence);
+            return;
+        }
+        ScreenshotCapture.Screenshot screenshot = null;
+        if (imageLength > 0) {
+            byte[] image = new byte[imageLength];
+            in.readFully(image);
+            screenshot = screenshots.adopt(image);
+        }
+
+        metrics.relayedNotifications.add(count);
+        dispatcher.enqueue(webhookUrl, embeds, screenshot == null ? null : CompletableFuture.completedFuture(screenshot),
+                () -> acknowledge(out, sequence));
+    }
+
+    // Dispatcher thread, once the follower's embeds are delivered.
+    private static void acknowledge(DataOutputStream out, long sequence) {
+        synchronized (out) {
+            try {
+                out.writeInt(9);
+                out.writeByte(ACK);
+                out.writeLong(sequence);
+                out.flush();
+            } catch (IOException e) {
+                // Follower gone; it sends these again after restarting, from its outbox.
+            }
+        }
+    }
+
+    /** Followers forward only these; any other webhook is delivered by the client that queued it. */
+    static boolean isRelayed(String webhookUrl) {
+        for (String prefix : RELAYED_URL_PREFIXES) {
+            if (webhookUrl.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length <= 0 || length > MAX_FRAME_BYTES) throw new ProtocolException("Bad frame length " + length);
+        byte[] frame = new byte[length];
+        in.readFully(frame);
+        return frame;
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | bytes[offset + i] & 0xFF;
+        }
+        return value;
+    }
+
+    private synchronized boolean isRunning() {
+        return running;
+    }
+
+    private void submit(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the outbox keeps anything unacknowledged.
+        }
+    }
+
+    private void publishRole(Role role) {
+        metrics.sharedDispatchRole = role.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do with it.
+        }
+    }
+}
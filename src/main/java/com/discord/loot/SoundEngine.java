@@ -0,0 +1,289 @@
+package com.discord.loot;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.awt.Toolkit;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a distinct alert per drop tier through one preopened output line. Every sound is decoded
+ * once into 16-bit mono PCM, from the user's WAV file or a built-in tone, and a single thread mixes
+ * whatever is playing into short chunks, so overlapping alerts share the line instead of each
+ * opening its own and nothing audio-related runs on the client thread.
+ *
+ * <p>Bursts are throttled: a tier can't restart within {@link #MIN_REPEAT_MILLIS} of its last start,
+ * at most {@link #MAX_VOICES} sounds mix at once, and requests beyond a small queue are dropped.
+ * Without a usable audio device it falls back to the system beep, with the same throttling.
+ */
+final class SoundEngine {
+    enum Tier {
+        PRIORITY("Priority"),
+        FORTUNE("Fortune"),
+        PET("Pet"),
+        VALUE("Value");
+
+        private final String title;
+
+        Tier(String title) {
+            this.title = title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+    }
+
+    private static final float SAMPLE_RATE = 22050f;
+    private static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+    // 20 ms per mix; the line buffers four of them, which bounds the added latency.
+    private static final int CHUNK_FRAMES = (int) (SAMPLE_RATE / 50);
+    private static final int LINE_BUFFER_BYTES = CHUNK_FRAMES * 2 * 4;
+    private static final int MAX_VOICES = 4;
+    private static final int MAX_CLIP_SECONDS = 5;
+    private static final long MIN_REPEAT_MILLIS = 300;
+    private static final long IDLE_STOP_MILLIS = 2000;
+
+    private final BlockingQueue<Tier> requests = new ArrayBlockingQueue<>(8);
+    private final Thread thread;
+    private volatile List<String> requestedFiles = Collections.emptyList();
+    private volatile boolean running = true;
+
+    // Engine thread only.
+    private List<String> loadedFiles;
+    private final short[][] sounds = new short[Tier.values().length][];
+    private final long[] lastStarted = new long[Tier.values().length];
+    private final short[][] voices = new short[MAX_VOICES][];
+    private final int[] positions = new int[MAX_VOICES];
+    private final int[] mix = new int[CHUNK_FRAMES];
+    private final byte[] out = new byte[CHUNK_FRAMES * 2];
+    private SourceDataLine line;
+
+    SoundEngine() {
+        thread = new Thread(this::run, "SoundEngine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    static Tier tierOf(byte kind) {
+        switch (kind) {
+            case LootClassifier.FORTUNE:
+                return Tier.FORTUNE;
+            case LootClassifier.VALUE:
+                return Tier.VALUE;
+            default:
+                return Tier.PRIORITY;
+        }
+    }
+
+    static Tier tierOf(ChatTrigger.Kind kind) {
+        return kind == ChatTrigger.Kind.PET ? Tier.PET : Tier.PRIORITY;
+    }
+
+    /**
+     * Sets the WAV file for each tier, in {@link Tier} order, empty for the built-in tone. They're
+     * decoded on the engine thread before it plays anything else, and only if they changed.
+     */
+    void setSoundFiles(List<String> files) {
+        if (!files.equals(requestedFiles)) requestedFiles = files;
+    }
+
+    /** Any thread; never blocks. */
+    void play(Tier tier) {
+        requests.offer(tier);
+    }
+
+    void shutdown() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        openLine();
+        long idleSince = System.nanoTime();
+        try {
+            while (running) {
+                if (!requestedFiles.equals(loadedFiles)) load(requestedFiles);
+
+                boolean playing = activeVoices() > 0;
+                Tier tier = playing ? requests.poll() : requests.poll(IDLE_STOP_MILLIS, TimeUnit.MILLISECONDS);
+                while (tier != null) {
+                    start(tier);
+                    tier = requests.poll();
+                }
+
+                if (activeVoices() == 0) {
+                    // Let the device go quiet after a while instead of feeding it silence.
+                    if (line != null && line.isRunning()
+                            && System.nanoTime() - idleSince > TimeUnit.MILLISECONDS.toNanos(IDLE_STOP_MILLIS)) {
+                        line.stop();
+                    }
+                    continue;
+                }
+                idleSince = System.nanoTime();
+                mixChunk();
+            }
+        } catch (InterruptedException e) {
+            // Shutting down.
+        } finally {
+            if (line != null) line.close();
+        }
+    }
+
+    private void openLine() {
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, LINE_BUFFER_BYTES);
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("No audio output available, falling back to the system beep: " + e.getMessage());
+            line = null;
+        }
+    }
+
+    private void start(Tier tier) {
+        long now = System.nanoTime();
+        int index = tier.ordinal();
+        if (lastStarted[index] != 0 && now - lastStarted[index] < TimeUnit.MILLISECONDS.toNanos(MIN_REPEAT_MILLIS)) return;
+        lastStarted[index] = now;
+
+        if (line == null) {
+            Toolkit.getDefaultToolkit().beep();
+            return;
+        }
+        // Take a free voice, or cut off the one closest to finishing.
+        int voice = -1;
+        int mostPlayed = -1;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            if (voices[i] == null) {
+                voice = i;
+                break;
+            }
+            int played = positions[i] * 100 / voices[i].length;
+            if (played > mostPlayed) {
+                mostPlayed = played;
+                voice = i;
+            }
+        }
+        voices[voice] = sounds[index];
+        positions[voice] = 0;
+        if (!line.isRunning()) line.start();
+    }
+
+    private int activeVoices() {
+        int active = 0;
+        for (short[] voice : voices) {
+            if (voice != null) active++;
+        }
+        return active;
+    }
+
+    private void mixChunk() {
+        Arrays.fill(mix, 0);
+        for (int v = 0; v < MAX_VOICES; v++) {
+            short[] voice = voices[v];
+            if (voice == null) continue;
+            int position = positions[v];
+            int frames = Math.min(CHUNK_FRAMES, voice.length - position);
+            for (int i = 0; i < frames; i++) {
+                mix[i] += voice[position + i];
+            }
+            positions[v] = position + frames;
+            if (positions[v] >= voice.length) voices[v] = null;
+        }
+        for (int i = 0; i < CHUNK_FRAMES; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+            out[2 * i] = (byte) sample;
+            out[2 * i + 1] = (byte) (sample >> 8);
+        }
+        // Blocks once the line's buffer is full, which paces the loop to real time.
+        line.write(out, 0, out.length);
+    }
+
+    private void load(List<String> files) {
+        for (Tier tier : Tier.values()) {
+            String file = tier.ordinal() < files.size() ? files.get(tier.ordinal()) : "";
+            short[] samples = null;
+            if (file != null && !file.isBlank()) {
+                try {
+                    samples = decode(new File(file.trim()));
+                } catch (IOException | UnsupportedAudioFileException | IllegalArgumentException e) {
+                    System.err.println("Failed to load " + tier + " sound " + file + ", using the built-in one: " + e.getMessage());
+                }
+            }
+            sounds[tier.ordinal()] = samples != null && samples.length > 0 ? samples : builtIn(tier);
+        }
+        // Voices still point at the old arrays and finish normally.
+        loadedFiles = files;
+    }
+
+    private static short[] decode(File file) throws IOException, UnsupportedAudioFileException {
+        try (AudioInputStream source = AudioSystem.getAudioInputStream(file)) {
+            AudioFormat sourceFormat = source.getFormat();
+            AudioFormat pcm = new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, sourceFormat.getSampleRate(), 16,
+                    sourceFormat.getChannels(), sourceFormat.getChannels() * 2, sourceFormat.getSampleRate(), false);
+            try (AudioInputStream decoded = AudioSystem.getAudioInputStream(pcm, source);
+                 AudioInputStream converted = AudioSystem.getAudioInputStream(FORMAT, decoded)) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int limit = (int) (MAX_CLIP_SECONDS * SAMPLE_RATE * 2);
+                int read;
+                while (bytes.size() < limit && (read = converted.read(buffer)) > 0) {
+                    bytes.write(buffer, 0, Math.min(read, limit - bytes.size()));
+                }
+                byte[] data = bytes.toByteArray();
+                short[] samples = new short[data.length / 2];
+                for (int i = 0; i < samples.length; i++) {
+                    samples[i] = (short) ((data[2 * i] & 0xFF) | data[2 * i + 1] << 8);
+                }
+                return samples;
+            }
+        }
+    }
+
+    /** Short synthesized chimes, different enough per tier to tell apart without looking. */
+    private static short[] builtIn(Tier tier) {
+        switch (tier) {
+            case PET:
+                return tones(new double[]{523.25, 659.25, 783.99, 1046.5}, 90);
+            case VALUE:
+                return tones(new double[]{987.77, 0, 987.77}, 70);
+            case FORTUNE:
+                return tones(new double[]{659.25}, 160);
+            default:
+                return tones(new double[]{880, 1318.5}, 120);
+        }
+    }
+
+    private static short[] tones(double[] frequencies, int noteMillis) {
+        int noteFrames = (int) (SAMPLE_RATE * noteMillis / 1000);
+        int fadeFrames = (int) (SAMPLE_RATE * 0.005);
+        short[] samples = new short[noteFrames * frequencies.length];
+        for (int n = 0; n < frequencies.length; n++) {
+            if (frequencies[n] == 0) continue;
+            double step = 2 * Math.PI * frequencies[n] / SAMPLE_RATE;
+            for (int i = 0; i < noteFrames; i++) {
+                // Short linear fades on both ends so notes don't click.
+                double envelope = Math.min(1, Math.min(i, noteFrames - 1 - i) / (double) fadeFrames);
+                samples[n * noteFrames + i] = (short) (Math.sin(i * step) * envelope * 0.35 * Short.MAX_VALUE);
+            }
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,135 @@
+package com.discord.loot;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Collects loot for the desktop tray and shows at most one summary toast per minimum interval.
+ * Pending loot is merged per item and bounded; when full, the oldest non-priority item is dropped.
+ */
+final class TrayNotificationScheduler {
+    private static final int MAX_PENDING_ITEMS = 32;
+    private static final int MAX_LISTED_ITEMS = 5;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "TrayNotificationScheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Consumer<String> display;
+    private final long minIntervalNanos;
+    private final PipelineMetrics metrics;
+
+    // Guarded by this.
+    private final Map<String, PendingItem> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+    private long lastShown;
+
+    TrayNotificationScheduler(Consumer<String> display, long minIntervalMillis, PipelineMetrics metrics) {
+        this.display = display;
+        this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMillis);
+        this.lastShown = System.nanoTime() - minIntervalNanos;
+        this.metrics = metrics;
+        metrics.setTrayQueueDepth(this::pendingCount);
+    }
+
+    synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    void offer(String itemName, int quantity, boolean priority) {
+        synchronized (this) {
+            PendingItem item = pending.get(itemName);
+            if (item == null) {
+                if (pending.size() >= MAX_PENDING_ITEMS) {
+                    metrics.droppedNotifications.increment();
+                    if (!evictFor(priority)) return;
+                }
+                pending.put(itemName, new PendingItem(itemName, quantity, priority));
+            } else {
+                item.quantity += quantity;
+            }
+
+            if (scheduled) return;
+            scheduled = true;
+            long delay = Math.max(0, lastShown + minIntervalNanos - System.nanoTime());
+            executor.schedule(this::showSummary, delay, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    synchronized void clear() {
+        pending.clear();
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Drops the oldest non-priority item, or the oldest item if the newcomer outranks everything.
+    private boolean evictFor(boolean priority) {
+        Iterator<PendingItem> it = pending.values().iterator();
+        while (it.hasNext()) {
+            if (!it.next().priority) {
+                it.remove();
+                return true;
+            }
+        }
+        if (!priority) return false;
+        it = pending.values().iterator();
+        it.next();
+        it.remove();
+        return true;
+    }
+
+    private void showSummary() {
+        String message;
+        synchronized (this) {
+            scheduled = false;
+            if (pending.isEmpty()) return;
+            message = summarize();
+            pending.clear();
+            lastShown = System.nanoTime();
+        }
+        display.accept(message);
+    }
+
+    private String summarize() {
+        if (pending.size() == 1) {
+            PendingItem item = pending.values().iterator().next();
+            return "You received " + item.quantity + "x " + item.name + "!";
+        }
+
+        long total = 0;
+        for (PendingItem item : pending.values()) {
+            total += item.quantity;
+        }
+        StringBuilder message = new StringBuilder("You received ").append(total).append(" items: ");
+        int listed = 0;
+        for (PendingItem item : pending.values()) {
+            if (listed == MAX_LISTED_ITEMS) {
+                message.append(" and ").append(pending.size() - listed).append(" more");
+                break;
+            }
+            if (listed++ > 0) message.append(", ");
+            message.append(item.quantity).append("x ").append(item.name);
+        }
+        return message.toString();
+    }
+
+    private static final class PendingItem {
+        final String name;
+        final boolean priority;
+        long quantity;
+
+        PendingItem(String name, long quantity, boolean priority) {
+            this.name = name;
+            this.quantity = quantity;
+            this.priority = priority;
+        }
+    }
+}
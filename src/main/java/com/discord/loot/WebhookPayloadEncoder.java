@@ -0,0 +1,265 @@
+package com.discord.loot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Writes Discord webhook bodies as UTF-8 JSON straight into a reusable byte buffer. Strings are
+ * escaped per RFC 8259, so control characters, quotes and lone surrogates in item, NPC or chat
+ * text can't produce an invalid body. Not thread-safe; each sender owns one encoder and must not
+ * encode again until the previous body has been sent.
+ */
+final class WebhookPayloadEncoder {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    // Random per encoder, so it can't collide with anything inside an image by design.
+    private final String boundary = "DiscordLoot" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private byte[] buffer = new byte[2048];
+    private int length;
+
+    /** Encodes {@code {"embeds":[...]}} and returns the body length; read it from {@link #buffer()}. */
+    int encode(List<DiscordEmbed> embeds) {
+        length = 0;
+        ascii("{\"embeds\":[");
+        for (int i = 0; i < embeds.size(); i++) {
+            if (i > 0) raw(',');
+            embed(embeds.get(i), null);
+        }
+        ascii("]}");
+        return length;
+    }
+
+    /**
+     * Encodes a {@code multipart/form-data} body: the JSON payload as {@code payload_json}, then each
+     * distinct screenshot as a file part. {@code screenshots} runs parallel to {@code embeds}, null
+     * where an embed has none; the others show theirs through an {@code attachment://} image URL.
+     * Send it with {@link #multipartContentType()}.
+     */
+    int encodeMultipart(List<DiscordEmbed> embeds, List<ScreenshotCapture.Screenshot> screenshots) {
+        length = 0;
+        partHeader("payload_json", null, "application/json");
+        ascii("{\"embeds\":[");
+        for (int i = 0; i < embeds.size(); i++) {
+            if (i > 0) raw(',');
+            ScreenshotCapture.Screenshot screenshot = screenshots.get(i);
+            embed(embeds.get(i), screenshot == null ? null : screenshot.fileName);
+        }
+        ascii("]}\r\n");
+
+        int file = 0;
+        for (int i = 0; i < screenshots.size(); i++) {
+            ScreenshotCapture.Screenshot screenshot = screenshots.get(i);
+            if (screenshot == null || attachedBefore(screenshots, i)) continue;
+            partHeader("files[" + file++ + "]", screenshot.fileName, "image/jpeg");
+            ensure(screenshot.data.length);
+            System.arraycopy(screenshot.data, 0, buffer, length, screenshot.data.length);
+            length += screenshot.data.length;
+            ascii("\r\n");
+        }
+        ascii("--");
+        ascii(boundary);
+        ascii("--\r\n");
+        return length;
+    }
+
+    String multipartContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    // The embeds of one loot event share a screenshot; it's uploaded once.
+    private static boolean attachedBefore(List<ScreenshotCapture.Screenshot> screenshots, int index) {
+        for (int i = 0; i < index; i++) {
+            if (screenshots.get(i) == screenshots.get(index)) return true;
+        }
+        return false;
+    }
+
+    // File names are generated by ScreenshotCapture and never need escaping.
+    private void partHeader(String name, String fileName, String contentType) {
+        ascii("--");
+        ascii(boundary);
+        ascii("\r\nContent-Disposition: form-data; name=\"");
+        ascii(name);
+        if (fileName != null) {
+            ascii("\"; filename=\"");
+            ascii(fileName);
+        }
+        ascii("\"\r\nContent-Type: ");
+        ascii(contentType);
+        ascii("\r\n\r\n");
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    private void embed(DiscordEmbed embed, String imageFile) {
+        ascii("{\"title\":");
+        string(embed.getTitle());
+        ascii(",\"description\":");
+        string(embed.getDescription());
+        ascii(",\"color\":");
+        number(embed.getColor());
+        if (embed.getTimestamp() > 0) {
+            ascii(",\"timestamp\":\"");
+            isoTimestamp(embed.getTimestamp());
+            raw('"');
+        }
+        if (embed.getThumbnailUrl() != null) {
+            ascii(",\"thumbnail\":{\"url\":");
+            string(embed.getThumbnailUrl());
+            raw('}');
+        }
+        if (imageFile != null) {
+            ascii(",\"image\":{\"url\":\"attachment://");
+            ascii(imageFile);
+            ascii("\"}");
+        }
+        List<DiscordEmbed.Field> fields = embed.getFields();
+        if (!fields.isEmpty()) {
+            ascii(",\"fields\":[");
+            for (int i = 0; i < fields.size(); i++) {
+                DiscordEmbed.Field field = fields.get(i);
+                if (i > 0) raw(',');
+                ascii("{\"name\":");
+                string(field.getName());
+                ascii(",\"value\":");
+                string(field.getValue());
+                ascii(field.isInline() ? ",\"inline\":true}" : "}");
+            }
+            raw(']');
+        }
+        raw('}');
+    }
+
+    private void string(String value) {
+        if (value == null) {
+            ascii("null");
+            return;
+        }
+        // Worst case per char is a six-byte \\u escape.
+        ensure(value.length() * 6 + 2);
+        byte[] out = buffer;
+        int pos = length;
+        out[pos++] = '"';
+        for (int i = 0, n = value.length(); i < n; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c < 0x80) {
+                if (c == '"' || c == '\\') out[pos++] = '\\';
+                out[pos++] = (byte) c;
+            } else if (c < 0x20) {
+                out[pos++] = '\\';
+                switch (c) {
+                    case '\b': out[pos++] = 'b'; break;
+                    case '\f': out[pos++] = 'f'; break;
+                    case '\n': out[pos++] = 'n'; break;
+                    case '\r': out[pos++] = 'r'; break;
+                    case '\t': out[pos++] = 't'; break;
+                    default:
+                        out[pos++] = 'u';
+                        out[pos++] = '0';
+                        out[pos++] = '0';
+                        out[pos++] = HEX[c >> 4];
+                        out[pos++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                out[pos++] = (byte) (0xC0 | (c >> 6));
+                out[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                // Unpaired surrogates are not valid UTF-8; send U+FFFD instead.
+                char bmp = Character.isSurrogate(c) ? '\uFFFD' : c;
+                out[pos++] = (byte) (0xE0 | (bmp >> 12));
+                out[pos++] = (byte) (0x80 | ((bmp >> 6) & 0x3F));
+                out[pos++] = (byte) (0x80 | (bmp & 0x3F));
+            }
+        }
+        out[pos++] = '"';
+        length = pos;
+    }
+
+    // yyyy-MM-ddTHH:mm:ss.SSSZ in UTC, without going through java.time.
+    private void isoTimestamp(long epochMillis) {
+        long days = Math.floorDiv(epochMillis, 86_400_000L);
+        int millisOfDay = (int) Math.floorMod(epochMillis, 86_400_000L);
+
+        // Civil-from-days, after Howard Hinnant's date algorithms.
+        long z = days + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        digits(year, 4);
+        raw('-');
+        digits(month, 2);
+        raw('-');
+        digits(day, 2);
+        raw('T');
+        digits(millisOfDay / 3_600_000, 2);
+        raw(':');
+        digits(millisOfDay / 60_000 % 60, 2);
+        raw(':');
+        digits(millisOfDay / 1000 % 60, 2);
+        raw('.');
+        digits(millisOfDay % 1000, 3);
+        raw('Z');
+    }
+
+    private void number(long value) {
+        if (value < 0) {
+            raw('-');
+            if (value == Long.MIN_VALUE) {
+                ascii("9223372036854775808");
+                return;
+            }
+            value = -value;
+        }
+        int width = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            width++;
+        }
+        digits(value, width);
+    }
+
+    private void digits(long value, int width) {
+        ensure(width);
+        for (int i = width - 1; i >= 0; i--) {
+            buffer[length + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += width;
+    }
+
+    private void ascii(String text) {
+        ensure(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void raw(char c) {
+        ensure(1);
+        buffer[length++] = (byte) c;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
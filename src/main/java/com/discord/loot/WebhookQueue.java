@@ -0,0 +1,22 @@
+package com.discord.loot;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where the Discord sink, the digest and test notifications hand their embeds: this client's own
+ * {@link DiscordDispatcher}, or a {@link SharedDispatcher} when several clients share delivery.
+ */
+interface WebhookQueue {
+    /**
+     * Journals and queues embeds that all show the screenshot {@code screenshot} completes with, if
+     * any. They're queued straight away and wait for it before being sent, as does everything queued
+     * after them. The queue takes over the one reference the completed screenshot carries.
+     */
+    void enqueue(String webhookUrl, List<DiscordEmbed> embeds,
+                 CompletableFuture<ScreenshotCapture.Screenshot> screenshot);
+
+    default void enqueue(String webhookUrl, List<DiscordEmbed> embeds) {
+        enqueue(webhookUrl, embeds, null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.discord.loot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A routing rule from the settings file: notifications of {@link #category} that also match the
+ * optional item and NPC names (case-insensitive) go to every URL in {@link #webhookUrls}.
+ */
+public class WebhookRoute {
+    public enum Category {
+        ANY("Any"),
+        PRIORITY("Priority Drop"),
+        FORTUNE_BOX("Fortune Box"),
+        PET("Pet Drop"),
+        COLLECTION_LOG("Collection Log"),
+        VALUABLE_DROP("Valuable Drop"),
+        LOOT_RULE("Loot Rule"),
+        CHAT_TRIGGER("Chat Trigger"),
+        DIGEST("Loot Digest");
+
+        private final String title;
+
+        Category(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+
+        static Category of(ChatTrigger.Kind kind) {
+            switch (kind) {
+                case PET:
+                    return PET;
+                case COLLECTION_LOG:
+                    return COLLECTION_LOG;
+                case VALUABLE_DROP:
+                    return VALUABLE_DROP;
+                default:
+                    return CHAT_TRIGGER;
+            }
+        }
+    }
+
+    public Category category = Category.ANY;
+    public String itemName = "";
+    public String npcName = "";
+    public List<String> webhookUrls = new ArrayList<>();
+
+    String describe() {
+        StringBuilder text = new StringBuilder(category.getTitle());
+        if (itemName != null && !itemName.isEmpty()) text.append(", item ").append(itemName);
+        if (npcName != null && !npcName.isEmpty()) text.append(", NPC ").append(npcName);
+        int count = webhookUrls.size();
+        return text.append(" -> ").append(count).append(count == 1 ? " webhook" : " webhooks").toString();
+    }
+
+    WebhookRoute copy() {
+        WebhookRoute copy = new WebhookRoute();
+        copy.category = category;
+        copy.itemName = itemName;
+        copy.npcName = npcName;
+        copy.webhookUrls = webhookUrls == null ? null : new ArrayList<>(webhookUrls);
+        return copy;
+    }
+}
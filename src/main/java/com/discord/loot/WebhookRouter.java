@@ -0,0 +1,75 @@
+package com.discord.loot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, pre-validated form of the configured {@link WebhookRoute}s. A notification goes to
+ * every webhook whose route matches it, or to the default webhook when no route does.
+ */
+final class WebhookRouter {
+    static final WebhookRouter EMPTY = new WebhookRouter(new Route[0]);
+
+    private static final class Route {
+        final WebhookRoute.Category category;
+        final String itemName;
+        final String npcName;
+        final String[] webhookUrls;
+
+        Route(WebhookRoute.Category category, String itemName, String npcName, String[] webhookUrls) {
+            this.category = category;
+            this.itemName = itemName;
+            this.npcName = npcName;
+            this.webhookUrls = webhookUrls;
+        }
+
+        boolean matches(WebhookRoute.Category category, String itemName, String npcName) {
+            return (this.category == WebhookRoute.Category.ANY || this.category == category)
+                    && (this.itemName == null || this.itemName.equalsIgnoreCase(itemName))
+                    && (this.npcName == null || this.npcName.equalsIgnoreCase(npcName));
+        }
+    }
+
+    private final Route[] routes;
+
+    private WebhookRouter(Route[] routes) {
+        this.routes = routes;
+    }
+
+    static WebhookRouter compile(List<WebhookRoute> configured) {
+        List<Route> routes = new ArrayList<>(configured.size());
+        for (WebhookRoute route : configured) {
+            if (route == null || route.webhookUrls == null) continue;
+            String[] urls = route.webhookUrls.stream()
+                    .filter(url -> url != null && !url.isBlank())
+                    .map(String::trim)
+                    .distinct()
+                    .toArray(String[]::new);
+            if (urls.length == 0) continue;
+            routes.add(new Route(route.category == null ? WebhookRoute.Category.ANY : route.category,
+                    blankToNull(route.itemName), blankToNull(route.npcName), urls));
+        }
+        return routes.isEmpty() ? EMPTY : new WebhookRouter(routes.toArray(new Route[0]));
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * Returns the distinct webhooks for a notification. {@code itemName} and {@code npcName} are
+     * null for chat messages, which therefore only match routes without item or NPC filters.
+     */
+    List<String> route(WebhookRoute.Category category, String itemName, String npcName, String defaultUrl) {
+        List<String> urls = null;
+        for (Route route : routes) {
+            if (!route.matches(category, itemName, npcName)) continue;
+            if (urls == null) urls = new ArrayList<>(route.webhookUrls.length);
+            for (String url : route.webhookUrls) {
+                if (!urls.contains(url)) urls.add(url);
+            }
+        }
+        if (urls != null) return urls;
+        return defaultUrl == null || defaultUrl.isEmpty() ? List.of() : List.of(defaultUrl);
+    }
+}
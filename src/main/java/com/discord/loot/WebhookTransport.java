@@ -0,0 +1,117 @@
+package com.discord.loot;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared non-blocking HTTP transport for every outbound webhook call. Connections are pooled by
+ * the underlying {@link HttpClient}; at most {@code maxInFlight} requests are on the wire and the
+ * rest wait in submission order.
+ */
+final class WebhookTransport {
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "DiscordHttp");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final int maxInFlight;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+    private int inFlight;
+    private boolean shutdown;
+
+    WebhookTransport(Duration connectTimeout, Duration requestTimeout, int maxInFlight) {
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .executor(executor)
+                .build();
+        this.requestTimeout = requestTimeout;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    CompletableFuture<HttpResponse<Void>> post(String url, String contentType, byte[] body) {
+        return post(url, contentType, body, 0, body.length);
+    }
+
+    /**
+     * Posts {@code length} bytes of {@code body} starting at {@code offset}. The array is not
+     * copied, so the caller must leave that range untouched until the returned future completes.
+     */
+    CompletableFuture<HttpResponse<Void>> post(String url, String contentType, byte[] body, int offset, int length) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", contentType)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body, offset, length))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<HttpResponse<Void>> result = new CompletableFuture<>();
+        Runnable send = () -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    release();
+                    if (error != null) result.completeExceptionally(error);
+                    else result.complete(response);
+                });
+
+        synchronized (this) {
+            if (shutdown) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Webhook transport is shut down"));
+            }
+            if (inFlight >= maxInFlight) {
+                waiting.add(send);
+                return result;
+            }
+            inFlight++;
+        }
+        send.run();
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+                notifyAll();
+                return;
+            }
+        }
+        next.run();
+    }
+
+    /**
+     * Stops accepting requests and waits up to {@code deadline} for queued and in-flight ones to
+     * finish before releasing the HTTP threads.
+     */
+    void shutdown(Duration deadline) {
+        long end = System.nanoTime() + deadline.toNanos();
+        synchronized (this) {
+            shutdown = true;
+            try {
+                long remaining;
+                while (inFlight > 0 && (remaining = end - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,46 @@
+package com.discord.loot;
+
+import net.runelite.client.game.ItemStack;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DuplicateFilterTest {
+    private static final int WINDOW = 2;
+
+    @Test
+    public void dropsARepeatedEventWithinTheWindow() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        List<ItemStack> drop = List.of(stack(526, 1), stack(995, 300));
+
+        assertFalse(filter.isRepeatedLoot("Goblin", drop, 100, WINDOW));
+        assertTrue(filter.isRepeatedLoot("Goblin", List.of(stack(995, 300), stack(526, 1)), 101, WINDOW));
+        assertFalse(filter.isRepeatedLoot("Goblin", drop, 100 + 2 * WINDOW, WINDOW));
+    }
+
+    @Test
+    public void keepsKillsThatOnlyShareAStack() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+
+        assertFalse(filter.isRepeatedLoot("Goblin", List.of(stack(526, 1), stack(995, 300)), 100, WINDOW));
+        assertFalse(filter.isRepeatedLoot("Goblin", List.of(stack(526, 1)), 100, WINDOW));
+        assertFalse(filter.isRepeatedLoot("Goblin", List.of(stack(526, 1), stack(526, 1)), 101, WINDOW));
+        assertFalse(filter.isRepeatedLoot("Hobgoblin", List.of(stack(526, 1)), 101, WINDOW));
+    }
+
+    @Test
+    public void forgetsEverythingWhenTheTickCounterRestarts() {
+        DuplicateFilter filter = new DuplicateFilter(64);
+        List<ItemStack> drop = List.of(stack(526, 1));
+
+        assertFalse(filter.isRepeatedLoot("Goblin", drop, 5000, WINDOW));
+        assertFalse(filter.isRepeatedLoot("Goblin", drop, 1, WINDOW));
+    }
+
+    private static ItemStack stack(int id, int quantity) {
+        return new ItemStack(id, quantity);
+    }
+}
@@ -0,0 +1,318 @@
+package com.discord.loot;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for Discord's webhook endpoint. Accepts the same JSON payloads, answers with the
+ * same rate limit headers, and can be told to add latency and inject 429s with Retry-After, 5xx
+ * responses and dropped connections, so the notification path can be exercised offline.
+ *
+ * <p>Both JSON bodies and multipart uploads with {@code payload_json} and file parts are accepted;
+ * every embed is recorded with the time it arrived and the size of the image it points at.
+ */
+final class FakeDiscordServer implements AutoCloseable {
+    private static final String ATTACHMENT = "attachment://";
+
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "FakeDiscord");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile long latencyMillis;
+    private volatile long latencyJitterMillis;
+    private volatile int rateLimit = 5;
+    private volatile long rateLimitWindowMillis = 2000;
+    private volatile double tooManyRequestsRate;
+    private volatile double serverErrorRate;
+    private volatile double connectionResetRate;
+
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<ReceivedEmbed> received = new ConcurrentLinkedQueue<>();
+
+    final AtomicLong requests = new AtomicLong();
+    final AtomicLong tooManyRequests = new AtomicLong();
+    final AtomicLong serverErrors = new AtomicLong();
+    final AtomicLong connectionResets = new AtomicLong();
+    final AtomicLong badRequests = new AtomicLong();
+    // Requests that arrived while a Retry-After we sent was still running.
+    final AtomicLong earlyRetries = new AtomicLong();
+
+    static final class ReceivedEmbed {
+        final long receivedNanos;
+        final String webhook;
+        final String title;
+        final String description;
+        // Size of the attached image the embed shows, 0 for none.
+        final int imageBytes;
+
+        ReceivedEmbed(long receivedNanos, String webhook, String title, String description, int imageBytes) {
+            this.receivedNanos = receivedNanos;
+            this.webhook = webhook;
+            this.title = title;
+            this.description = description;
+            this.imageBytes = imageBytes;
+        }
+    }
+
+    private static final class Bucket {
+        long windowStart;
+        int used;
+        long blockedUntil = Long.MIN_VALUE;
+    }
+
+    FakeDiscordServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/webhooks/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** Adds {@code base} plus up to {@code jitter} milliseconds before every response. */
+    FakeDiscordServer latency(long base, long jitter) {
+        latencyMillis = base;
+        latencyJitterMillis = jitter;
+        return this;
+    }
+
+    /** Allows {@code limit} requests per webhook every {@code windowMillis}, like Discord's buckets. */
+    FakeDiscordServer rateLimit(int limit, long windowMillis) {
+        rateLimit = limit;
+        rateLimitWindowMillis = windowMillis;
+        return this;
+    }
+
+    /** Fractions of requests answered with a 429, answered with a 500, or cut off without a response. */
+    FakeDiscordServer faults(double tooManyRequests, double serverErrors, double connectionResets) {
+        tooManyRequestsRate = tooManyRequests;
+        serverErrorRate = serverErrors;
+        connectionResetRate = connectionResets;
+        return this;
+    }
+
+    String webhookUrl(String name) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/api/webhooks/0/" + name;
+    }
+
+    Iterable<ReceivedEmbed> received() {
+        return received;
+    }
+
+    int receivedCount() {
+        return received.size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long arrived = System.nanoTime();
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, null);
+                return;
+            }
+            String webhook = exchange.getRequestURI().getPath();
+            byte[] body = readAll(exchange.getRequestBody());
+
+            long delay = latencyMillis + (latencyJitterMillis > 0 ? random.nextLong(latencyJitterMillis + 1) : 0);
+            if (delay > 0) Thread.sleep(delay);
+
+            if (random.nextDouble() < connectionResetRate) {
+                connectionResets.incrementAndGet();
+                // Closing before any response is written drops the connection, like a reset mid-request.
+                exchange.close();
+                return;
+            }
+            if (random.nextDouble() < serverErrorRate) {
+                serverErrors.incrementAndGet();
+                respond(exchange, 500, "{\"message\": \"Internal Server Error\", \"code\": 0}");
+                return;
+            }
+
+            long retryAfterMillis = admit(exchange, webhook, arrived, random.nextDouble() < tooManyRequestsRate);
+            if (retryAfterMillis > 0) {
+                tooManyRequests.incrementAndGet();
+                String seconds = seconds(TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+                exchange.getResponseHeaders().set("Retry-After", seconds);
+                respond(exchange, 429, "{\"message\": \"You are being rate limited.\", \"retry_after\": "
+                        + seconds + ", \"global\": false}");
+                return;
+            }
+
+            if (!accept(webhook, arrived, exchange.getRequestHeaders().getFirst("Content-Type"), body)) {
+                badRequests.incrementAndGet();
+                respond(exchange, 400, "{\"message\": \"Invalid Form Body\", \"code\": 50035}");
+                return;
+            }
+            respond(exchange, 204, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        }
+    }
+
+    /**
+     * Takes a request from the webhook's bucket and sets the rate limit headers, returning how long
+     * the caller has to wait if it was throttled instead.
+     */
+    private long admit(HttpExchange exchange, String webhook, long now, boolean forceThrottle) {
+        Bucket bucket = buckets.computeIfAbsent(webhook, k -> new Bucket());
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(rateLimitWindowMillis);
+        synchronized (bucket) {
+            if (now < bucket.blockedUntil) {
+                earlyRetries.incrementAndGet();
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(bucket.blockedUntil - now));
+            }
+            if (bucket.used == 0 || now - bucket.windowStart >= windowNanos) {
+                bucket.windowStart = now;
+                bucket.used = 0;
+            }
+            long resetAfter = bucket.windowStart + windowNanos - now;
+            if (forceThrottle || bucket.used >= rateLimit) {
+                // A forced 429 stands in for a shared or global limit we can't see in the headers.
+                long retryAfter = forceThrottle ? Math.max(resetAfter, TimeUnit.MILLISECONDS.toNanos(250)) : resetAfter;
+                bucket.blockedUntil = now + retryAfter;
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(retryAfter));
+            }
+            bucket.used++;
+            exchange.getResponseHeaders().set("X-RateLimit-Limit", String.valueOf(rateLimit));
+            exchange.getResponseHeaders().set("X-RateLimit-Remaining", String.valueOf(rateLimit - bucket.used));
+            exchange.getResponseHeaders().set("X-RateLimit-Reset-After", seconds(resetAfter));
+            return 0;
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e9);
+    }
+
+    private boolean accept(String webhook, long arrived, String contentType, byte[] body) {
+        Map<String, Integer> files = new HashMap<>();
+        String json;
+        if (contentType != null && contentType.startsWith("multipart/form-data")) {
+            json = parseMultipart(contentType, body, files);
+            if (json == null) return false;
+        } else {
+            json = new String(body, StandardCharsets.UTF_8);
+        }
+        JsonObject payload;
+        try {
+            payload = gson.fromJson(json, JsonObject.class);
+        } catch (RuntimeException e) {
+            return false;
+        }
+        JsonElement embeds = payload == null ? null : payload.get("embeds");
+        if (embeds == null || !embeds.isJsonArray()) return false;
+        JsonArray array = embeds.getAsJsonArray();
+        if (array.size() == 0 || array.size() > DiscordDispatcher.MAX_EMBEDS_PER_MESSAGE) return false;
+        List<ReceivedEmbed> embedsReceived = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+            JsonObject embed = element.getAsJsonObject();
+            int imageBytes = 0;
+            if (embed.has("image")) {
+                String url = embed.getAsJsonObject("image").get("url").getAsString();
+                if (url.startsWith(ATTACHMENT)) {
+                    // Discord rejects embeds pointing at a file that wasn't uploaded.
+                    Integer size = files.get(url.substring(ATTACHMENT.length()));
+                    if (size == null) return false;
+                    imageBytes = size;
+                }
+            }
+            embedsReceived.add(new ReceivedEmbed(arrived, webhook,
+                    embed.has("title") ? embed.get("title").getAsString() : "",
+                    embed.has("description") ? embed.get("description").getAsString() : "",
+                    imageBytes));
+        }
+        received.addAll(embedsReceived);
+        return true;
+    }
+
+    /** Returns the {@code payload_json} part and fills in the size of every file part, or null if malformed. */
+    private static String parseMultipart(String contentType, byte[] body, Map<String, Integer> files) {
+        int at = contentType.indexOf("boundary=");
+        if (at < 0) return null;
+        String delimiter = "--" + contentType.substring(at + "boundary=".length()).trim();
+        // Latin-1 maps bytes to chars one to one, so offsets stay valid for the binary parts.
+        String raw = new String(body, StandardCharsets.ISO_8859_1);
+        String json = null;
+        int start = raw.indexOf(delimiter);
+        while (start >= 0) {
+            start += delimiter.length();
+            if (raw.startsWith("--", start)) return json;
+            int headersEnd = raw.indexOf("\r\n\r\n", start);
+            int next = raw.indexOf("\r\n" + delimiter, start);
+            if (headersEnd < 0 || next < 0 || headersEnd > next) return null;
+            String headers = raw.substring(start, headersEnd);
+            String name = headerParameter(headers, "name");
+            String fileName = headerParameter(headers, "filename");
+            int contentStart = headersEnd + 4;
+            if ("payload_json".equals(name)) {
+                json = new String(body, contentStart, next - contentStart, StandardCharsets.UTF_8);
+            } else if (fileName != null) {
+                files.put(fileName, next - contentStart);
+            }
+            start = next + 2;
+        }
+        return null;
+    }
+
+    private static String headerParameter(String headers, String parameter) {
+        String key = "; " + parameter + "=\"";
+        int at = headers.indexOf(key);
+        if (at < 0) return null;
+        int end = headers.indexOf('"', at + key.length());
+        return end < 0 ? null : headers.substring(at + key.length(), end);
+    }
+
+    private void respond(HttpExchange exchange, int status, String json) throws IOException {
+        if (json == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.discord.loot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IntLongHashMapTest {
+    @Test
+    public void keepsEveryWriteWhileGrowing() {
+        IntLongHashMap map = new IntLongHashMap(4);
+        int initialCapacity = map.capacity();
+        for (int key = 0; key < 1000; key++) {
+            map.put(key * 7919, key);
+            map.addTo(-key - 1, 2);
+            map.addTo(-key - 1, 3);
+        }
+
+        assertTrue(map.capacity() > initialCapacity);
+        assertEquals(2000, map.size());
+        for (int key = 0; key < 1000; key++) {
+            assertEquals(key, map.get(key * 7919, -1));
+            assertEquals(5, map.get(-key - 1, -1));
+        }
+    }
+
+    @Test
+    public void putOverwritesAndClearEmpties() {
+        IntLongHashMap map = new IntLongHashMap();
+        map.put(42, 1);
+        map.put(42, 2);
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(42, -1));
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertEquals(-1, map.get(42, -1));
+    }
+}
@@ -0,0 +1,418 @@
+package com.discord.loot;
+
+import com.google.gson.GsonBuilder;
+import com.google.inject.Guice;
+import net.runelite.api.ChatMessageType;
+import net.runelite.api.Client;
+import net.runelite.api.GameState;
+import net.runelite.api.ItemComposition;
+import net.runelite.api.Player;
+import net.runelite.api.events.ChatMessage;
+import net.runelite.client.callback.ClientThread;
+import net.runelite.client.game.ItemManager;
+import net.runelite.client.game.ItemStack;
+import net.runelite.client.plugins.loottracker.LootReceived;
+import net.runelite.client.ui.ClientToolbar;
+import net.runelite.client.ui.DrawManager;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Replays synthetic {@link LootReceived} and {@link ChatMessage} streams through a real
+ * {@link NpcDropDiscordPlugin} pointed at a {@link FakeDiscordServer}, then matches every embed the
+ * server accepted back to the event that caused it. Reports throughput, end-to-end latency from the
+ * event handler to the server, and how many notifications were lost or duplicated.
+ *
+ * <p>Events are posted from a simulated client thread at a fixed rate, the same way RuneLite's
+ * event bus delivers them. The plugin directory is redirected into a temporary home, so a run
+ * never touches real settings or history.
+ *
+ * <p>Also runnable on its own for bigger loads, e.g. {@code events=50000 rate=2000 faults=true}.
+ */
+final class LoadReplayHarness {
+    private static final Path HOME = redirectHome();
+    private static final long TICK_MILLIS = 10;
+    private static final String PLAYER_NAME = "Load Tester";
+    private static final String PET_MESSAGE = "You have a funny feeling like you're being followed.";
+    private static final Pattern SEQUENCE = Pattern.compile("#(\\d+)");
+    private static final int FIRST_ITEM_ID = 1000;
+
+    static final class Options {
+        int lootEvents = 1000;
+        int chatEvents = 100;
+        int eventsPerSecond = 200;
+        int maxItemsPerEvent = 3;
+        int distinctItems = 300;
+        long seed = 1;
+        Duration drainTimeout = Duration.ofSeconds(60);
+    }
+
+    static final class Report {
+        int lootEvents;
+        int chatEvents;
+        long expectedEmbeds;
+        long deliveredEmbeds;
+        long lostEmbeds;
+        long duplicateEmbeds;
+        long elapsedNanos;
+        long requests;
+        long tooManyRequests;
+        long serverErrors;
+        long connectionResets;
+        long badRequests;
+        long earlyRetries;
+        LatencyHistogram.Snapshot endToEnd;
+        LatencyHistogram.Snapshot clientThread;
+
+        double embedsPerSecond() {
+            return elapsedNanos == 0 ? 0 : deliveredEmbeds * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%d loot + %d chat events, %d/%d embeds delivered (%d lost, %d duplicated) in %.1f s, %.0f embeds/s%n"
+                            + "end to end: p50 %s, p99 %s, max %s; client thread: p50 %s, p99 %s%n"
+                            + "server: %d requests, %d x 429 (%d before Retry-After), %d x 5xx, %d resets, %d rejected",
+                    lootEvents, chatEvents, deliveredEmbeds, expectedEmbeds, lostEmbeds, duplicateEmbeds,
+                    elapsedNanos / 1e9, embedsPerSecond(),
+                    millis(endToEnd.percentileNanos(50)), millis(endToEnd.percentileNanos(99)), millis(endToEnd.getMaxNanos()),
+                    micros(clientThread.percentileNanos(50)), micros(clientThread.percentileNanos(99)),
+                    requests, tooManyRequests, earlyRetries, serverErrors, connectionResets, badRequests);
+        }
+
+        private static String millis(long nanos) {
+            return String.format("%.1f ms", nanos / 1e6);
+        }
+
+        private static String micros(long nanos) {
+            return String.format("%.1f us", nanos / 1e3);
+        }
+    }
+
+    private LoadReplayHarness() {
+    }
+
+    static Report run(FakeDiscordServer server, Options options) throws Exception {
+        if (!NpcDropDiscordPlugin.PLUGIN_DIR.startsWith(HOME)) {
+            throw new IllegalStateException("Plugin directory was resolved before the harness could redirect it: "
+                    + NpcDropDiscordPlugin.PLUGIN_DIR);
+        }
+        resetPluginDir(server.webhookUrl("load"));
+
+        SimulatedClientThread clientThread = new SimulatedClientThread();
+        NpcDropDiscordPlugin plugin = new NpcDropDiscordPlugin();
+        Client client = fakeClient(clientThread);
+        Guice.createInjector(binder -> {
+            binder.bind(Client.class).toInstance(client);
+            binder.bind(ClientThread.class).toInstance(clientThread);
+            binder.bind(ClientToolbar.class).toInstance(mock(ClientToolbar.class));
+            binder.bind(ItemManager.class).toInstance(mock(ItemManager.class));
+            binder.bind(DrawManager.class).toInstance(mock(DrawManager.class));
+        }).injectMembers(plugin);
+
+        plugin.startUp();
+        Report report;
+        try {
+            NpcDropDiscordPlugin.whenStarted().get(10, TimeUnit.SECONDS);
+            report = replay(plugin, clientThread, server, options);
+        } finally {
+            plugin.shutDown();
+            NpcDropDiscordPlugin.whenStopped().get(10, TimeUnit.SECONDS);
+            clientThread.shutdown();
+        }
+        return report;
+    }
+
+    private static Report replay(NpcDropDiscordPlugin plugin, SimulatedClientThread clientThread,
+                                 FakeDiscordServer server, Options options) throws InterruptedException {
+        int total = options.lootEvents + options.chatEvents;
+        long[] publishedAt = new long[total];
+        int[] expected = new int[total];
+        LatencyHistogram handlerTime = new LatencyHistogram();
+        Random random = new Random(options.seed);
+
+        // Chat messages are spread evenly through the loot stream.
+        boolean[] isChat = new boolean[total];
+        for (int i = 0; i < options.chatEvents; i++) {
+            isChat[(int) ((long) i * total / options.chatEvents)] = true;
+        }
+
+        CountDownLatch done = new CountDownLatch(1);
+        double perTick = options.eventsPerSecond * TICK_MILLIS / 1000.0;
+        ScheduledFuture<?> generator = clientThread.scheduleAtFixedRate(new Runnable() {
+            int next;
+            double credit;
+
+            @Override
+            public void run() {
+                credit += perTick;
+                for (; credit >= 1 && next < total; credit--, next++) {
+                    Object event = isChat[next]
+                            ? chatMessage(next)
+                            : lootReceived(next, random, options, expected);
+                    if (isChat[next]) expected[next] = 1;
+
+                    long start = System.nanoTime();
+                    publishedAt[next] = start;
+                    if (event instanceof ChatMessage) plugin.onChatMessage((ChatMessage) event);
+                    else plugin.onLootReceived((LootReceived) event);
+                    handlerTime.recordNanos(System.nanoTime() - start);
+                }
+                if (next == total) done.countDown();
+            }
+        }, TICK_MILLIS);
+
+        done.await();
+        generator.cancel(false);
+
+        long expectedEmbeds = 0;
+        for (int count : expected) expectedEmbeds += count;
+        long deadline = System.nanoTime() + options.drainTimeout.toNanos();
+        while (server.receivedCount() < expectedEmbeds && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        Report report = new Report();
+        report.lootEvents = options.lootEvents;
+        report.chatEvents = options.chatEvents;
+        report.expectedEmbeds = expectedEmbeds;
+
+        int[] seen = new int[total];
+        long lastReceived = publishedAt[0];
+        LatencyHistogram endToEnd = new LatencyHistogram();
+        for (FakeDiscordServer.ReceivedEmbed embed : server.received()) {
+            Matcher matcher = SEQUENCE.matcher(embed.description);
+            if (!matcher.find()) continue;
+            int sequence = Integer.parseInt(matcher.group(1));
+            if (sequence >= total) continue;
+            seen[sequence]++;
+            endToEnd.recordNanos(embed.receivedNanos - publishedAt[sequence]);
+            lastReceived = Math.max(lastReceived, embed.receivedNanos);
+        }
+        for (int i = 0; i < total; i++) {
+            report.deliveredEmbeds += Math.min(seen[i], expected[i]);
+            report.lostEmbeds += Math.max(0, expected[i] - seen[i]);
+            report.duplicateEmbeds += Math.max(0, seen[i] - expected[i]);
+        }
+        report.elapsedNanos = lastReceived - publishedAt[0];
+        report.endToEnd = endToEnd.snapshot();
+        report.clientThread = handlerTime.snapshot();
+        report.requests = server.requests.get();
+        report.tooManyRequests = server.tooManyRequests.get();
+        report.serverErrors = server.serverErrors.get();
+        report.connectionResets = server.connectionResets.get();
+        report.badRequests = server.badRequests.get();
+        report.earlyRetries = server.earlyRetries.get();
+        return report;
+    }
+
+    private static LootReceived lootReceived(int sequence, Random random, Options options, int[] expected) {
+        int count = 1 + random.nextInt(options.maxItemsPerEvent);
+        List<ItemStack> items = new ArrayList<>(count);
+        int first = random.nextInt(options.distinctItems);
+        for (int i = 0; i < count; i++) {
+            // Consecutive ids, so an event never carries the same item twice.
+            int id = FIRST_ITEM_ID + (first + i) % options.distinctItems;
+            items.add(new ItemStack(id, 1 + random.nextInt(50)));
+        }
+        expected[sequence] = count;
+
+        LootReceived event = new LootReceived();
+        event.setName("Load NPC #" + sequence);
+        event.setCombatLevel(100);
+        event.setItems(items);
+        event.setAmount(1);
+        return event;
+    }
+
+    private static ChatMessage chatMessage(int sequence) {
+        ChatMessage event = new ChatMessage();
+        event.setType(ChatMessageType.GAMEMESSAGE);
+        event.setMessage(PET_MESSAGE + " #" + sequence);
+        return event;
+    }
+
+    private static void resetPluginDir(String webhookUrl) throws IOException {
+        Path dir = NpcDropDiscordPlugin.PLUGIN_DIR;
+        if (Files.exists(dir)) {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    if (!file.equals(dir)) Files.delete(file);
+                }
+            }
+        }
+        Files.createDirectories(dir);
+
+        DiscordLootSettings settings = new DiscordLootSettings();
+        settings.webhookUrl = webhookUrl;
+        // Only the Discord path is under test; every drop is notable and goes nowhere else.
+        settings.pmEnabled = false;
+        settings.trayEnabled = false;
+        settings.soundEnabled = false;
+        settings.lootRules.add("include * -> discord");
+        Files.write(dir.resolve("discord_loot_settings.json"),
+                new GsonBuilder().setPrettyPrinting().create().toJson(settings).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Path redirectHome() {
+        try {
+            Path home = Files.createTempDirectory("discord-loot-load");
+            System.setProperty("user.home", home.toString());
+            return home;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Client fakeClient(SimulatedClientThread clientThread) {
+        Player player = proxy(Player.class, (p, method, args) ->
+                "getName".equals(method.getName()) ? PLAYER_NAME : defaultValue(method.getReturnType()));
+        Map<Integer, ItemComposition> items = new ConcurrentHashMap<>();
+        return proxy(Client.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "getLocalPlayer":
+                    return player;
+                case "getItemDefinition":
+                    return items.computeIfAbsent((Integer) args[0], LoadReplayHarness::itemComposition);
+                case "isClientThread":
+                    return clientThread.isCurrentThread();
+                case "getGameState":
+                    return GameState.LOGGED_IN;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private static ItemComposition itemComposition(int id) {
+        return proxy(ItemComposition.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "getName":
+                    return "Load item " + id;
+                case "getId":
+                    return id;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) return null;
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0f;
+        if (type == double.class) return 0d;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        return 0;
+    }
+
+    /**
+     * Stands in for the game thread: a single thread that runs queued work, and re-runs a
+     * {@link BooleanSupplier} every tick until it returns true, like {@link ClientThread} does.
+     */
+    static final class SimulatedClientThread extends ClientThread {
+        private volatile Thread thread;
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            thread = new Thread(r, "Client");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        boolean isCurrentThread() {
+            return Thread.currentThread() == thread;
+        }
+
+        @Override
+        public void invoke(Runnable r) {
+            if (isCurrentThread()) r.run();
+            else invokeLater(r);
+        }
+
+        @Override
+        public void invoke(BooleanSupplier r) {
+            if (!isCurrentThread() || !r.getAsBoolean()) invokeLater(r);
+        }
+
+        @Override
+        public void invokeLater(Runnable r) {
+            if (!executor.isShutdown()) executor.execute(r);
+        }
+
+        @Override
+        public void invokeLater(BooleanSupplier r) {
+            invokeLater(() -> {
+                if (!r.getAsBoolean() && !executor.isShutdown()) {
+                    executor.schedule(() -> invokeLater(r), TICK_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            });
+        }
+
+        ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long periodMillis) {
+            return executor.scheduleAtFixedRate(task, 0, periodMillis, TimeUnit.MILLISECONDS);
+        }
+
+        void shutdown() {
+            executor.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        boolean faults = false;
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            switch (pair[0]) {
+                case "events":
+                    options.lootEvents = Integer.parseInt(pair[1]);
+                    options.chatEvents = options.lootEvents / 10;
+                    break;
+                case "rate":
+                    options.eventsPerSecond = Integer.parseInt(pair[1]);
+                    break;
+                case "faults":
+                    faults = Boolean.parseBoolean(pair[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + arg + ", expected events=, rate= or faults=");
+            }
+        }
+        try (FakeDiscordServer server = new FakeDiscordServer()) {
+            server.rateLimit(50, 1000).latency(30, 40);
+            if (faults) server.faults(0.03, 0.03, 0.01);
+            System.out.println(run(server, options));
+        }
+        System.exit(0);
+    }
+}
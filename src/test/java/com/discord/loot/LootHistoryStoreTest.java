@@ -0,0 +1,68 @@
+package com.discord.loot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+public class LootHistoryStoreTest {
+    private Path directory;
+    private LootHistoryStore store;
+
+    @Before
+    public void open() throws Exception {
+        directory = Files.createTempDirectory("loot-history");
+        store = new LootHistoryStore(directory);
+        store.open().get(5, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void close() throws IOException {
+        store.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    public void sinceReturnsTheNewestMatchesFirst() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            append(1000 + i, i);
+        }
+
+        List<LootRecord> drops = store.since(1100, 50).get(5, TimeUnit.SECONDS);
+        assertEquals(50, drops.size());
+        assertEquals(1299, drops.get(0).getTimestamp());
+        assertEquals(1250, drops.get(49).getTimestamp());
+
+        List<LootRecord> all = store.since(1290, 100).get(5, TimeUnit.SECONDS);
+        assertEquals(10, all.size());
+        assertEquals(1290, all.get(9).getTimestamp());
+    }
+
+    @Test
+    public void queriesSeeRecordsAppendedAfterThePreviousQuery() throws Exception {
+        append(1000, 1);
+        assertEquals(1, store.since(0, 10).get(5, TimeUnit.SECONDS).size());
+
+        append(2000, 2);
+        append(3000, 3);
+        List<LootRecord> drops = store.since(0, 10).get(5, TimeUnit.SECONDS);
+        assertEquals(3, drops.size());
+        assertEquals(3, drops.get(0).getQuantity());
+        assertEquals(3, store.dropsFrom("GOBLIN", 10).get(5, TimeUnit.SECONDS).size());
+    }
+
+    private void append(long timestamp, int quantity) {
+        store.append(timestamp, "Goblin", "Player", new int[]{526}, new int[]{quantity}, new String[]{"Bones"});
+    }
+}
@@ -0,0 +1,105 @@
+package com.discord.loot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LootRuleTest {
+    @Test
+    public void blankAndCommentLinesAreSkipped() {
+        assertNull(LootRule.parse("   "));
+        assertNull(LootRule.parse("  # exclude *"));
+    }
+
+    @Test
+    public void itemOnlyRuleIncludesWithEveryAction() {
+        LootRule rule = LootRule.parse("*dragon*");
+        assertFalse(rule.exclude);
+        assertTrue(rule.item.matches("dragon bones"));
+        assertNull(rule.npc);
+        assertEquals(LootRule.ALL_ACTIONS, rule.actions);
+        assertEquals(LootClassifier.RULE, rule.kind);
+        assertFalse(rule.isContextual());
+    }
+
+    @Test
+    public void leadingKeywordSetsIncludeOrExclude() {
+        assertTrue(LootRule.parse("EXCLUDE coins").exclude);
+        assertFalse(LootRule.parse("include coins").exclude);
+        // Quoted, it's an item name rather than the keyword.
+        LootRule rule = LootRule.parse("\"exclude\"");
+        assertFalse(rule.exclude);
+        assertEquals("exclude", rule.item.exactName());
+    }
+
+    @Test
+    public void filtersAndActionsAreParsed() {
+        LootRule rule = LootRule.parse("include \"dragon bones\" npc=/^vork/ qty=5.. value=1.5m..2b -> discord, tray");
+        assertEquals("dragon bones", rule.item.exactName());
+        assertTrue(rule.npc.matches("vorkath"));
+        assertFalse(rule.npc.matches("baby vorkath"));
+        assertEquals(5, rule.minQuantity);
+        assertEquals(Long.MAX_VALUE, rule.maxQuantity);
+        assertEquals(1_500_000, rule.minValue);
+        assertEquals(2_000_000_000L, rule.maxValue);
+        assertEquals(LootRule.DISCORD | LootRule.TRAY, rule.actions);
+        assertTrue(rule.isContextual());
+        assertTrue(rule.matchesContext("vorkath", 5, 1_500_000));
+        assertFalse(rule.matchesContext("vorkath", 4, 1_500_000));
+        assertFalse(rule.matchesContext("zulrah", 5, 1_500_000));
+    }
+
+    @Test
+    public void rangesAcceptOpenEndsSuffixesAndSingleNumbers() {
+        LootRule upTo = LootRule.parse("coins quantity=..10k");
+        assertEquals(Long.MIN_VALUE, upTo.minQuantity);
+        assertEquals(10_000, upTo.maxQuantity);
+
+        LootRule atLeast = LootRule.parse("coins value=1,000");
+        assertEquals(1_000, atLeast.minValue);
+        assertEquals(Long.MAX_VALUE, atLeast.maxValue);
+    }
+
+    @Test
+    public void quotesAndRegexesKeepEscapes() {
+        assertEquals("say \"hi\"", LootRule.parse("\"say \\\"hi\\\"\"").item.exactName());
+        LootRule rule = LootRule.parse("/^a\\/b \\d+$/");
+        assertTrue(rule.item.matches("a/b 12"));
+        assertFalse(rule.item.matches("a/b x"));
+    }
+
+    @Test
+    public void keysAndActionsIgnoreCase() {
+        LootRule rule = LootRule.parse("coins NPC=goblin -> PM,Sound");
+        assertTrue(rule.npc.matches("goblin"));
+        assertEquals(LootRule.PM | LootRule.SOUND, rule.actions);
+        assertEquals(LootRule.ALL_ACTIONS, LootRule.parse("coins -> all").actions);
+    }
+
+    @Test
+    public void malformedLinesExplainWhatIsWrong() {
+        assertError("include", "missing item pattern");
+        assertError("npc=goblin", "missing item pattern");
+        assertError("coins goblin", "unexpected \"goblin\"");
+        assertError("coins level=5", "unknown filter \"level\"");
+        assertError("coins -> discord,email", "unknown action \"email\"");
+        assertError("coins ->", "no actions after ->");
+        assertError("\"dragon bones", "unterminated \"");
+        assertError("coins qty=lots", "invalid number \"lots\"");
+        assertError("\"\"", "empty pattern");
+        assertError("/[a/", "invalid regex /[a/");
+    }
+
+    private static void assertError(String line, String messageStart) {
+        try {
+            LootRule.parse(line);
+            fail("parsed \"" + line + "\"");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(messageStart));
+        }
+    }
+}
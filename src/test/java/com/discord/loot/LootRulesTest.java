@@ -0,0 +1,70 @@
+package com.discord.loot;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LootRulesTest {
+    @Test
+    public void ignoringSlayerBoxesOnlyNarrowsFortuneRules() {
+        DiscordLootSettings settings = new DiscordLootSettings();
+        settings.fortuneEnabled = true;
+        settings.slayerEnabled = true;
+        LootRules rules = LootRules.compile(settings);
+
+        assertEquals(LootClassifier.FORTUNE, kind(rules, "Mystery box", 1));
+        assertSame(LootRules.Verdict.IGNORE, rules.verdictFor("Slayer reward box"));
+    }
+
+    @Test
+    public void priorityDropsMatchWhateverCaseTheyWereSavedIn() {
+        DiscordLootSettings settings = new DiscordLootSettings();
+        settings.priorityDrops = List.of("Abyssal whip", "dragon bones");
+        LootRules rules = LootRules.compile(settings);
+
+        assertSame(LootRules.Verdict.PRIORITY, rules.verdictFor("abyssal WHIP"));
+        assertSame(LootRules.Verdict.PRIORITY, rules.verdictFor("Dragon bones"));
+    }
+
+    @Test
+    public void slayerBoxesStillMeetTheValueRule() {
+        DiscordLootSettings settings = new DiscordLootSettings();
+        settings.valueNotificationsEnabled = true;
+        settings.minimumValue = 100;
+        LootRules rules = LootRules.compile(settings);
+
+        assertEquals(LootClassifier.VALUE, kind(rules, "Slayer reward box", 500));
+        assertEquals(LootClassifier.IGNORE, kind(rules, "Slayer reward box", 50));
+    }
+
+    @Test
+    public void userRulesCanIncludeSlayerBoxes() {
+        DiscordLootSettings settings = new DiscordLootSettings();
+        settings.lootRules = List.of("*slayer*box* -> discord");
+        LootRules rules = LootRules.compile(settings);
+
+        int result = rules.verdictFor("Slayer reward box").evaluate("goblin", 1, 0);
+        assertEquals(LootClassifier.RULE, LootRules.Verdict.kindOf(result));
+        assertEquals(LootRule.DISCORD, LootRules.Verdict.actionsOf(result));
+    }
+
+    @Test
+    public void excludeRulesSubtractActions() {
+        DiscordLootSettings settings = new DiscordLootSettings();
+        settings.lootRules = List.of("*bones*", "exclude \"dragon bones\" -> pm", "broken line ->");
+        LootRules rules = LootRules.compile(settings);
+
+        int result = rules.verdictFor("Dragon bones").evaluate(null, 1, 0);
+        assertEquals(LootRule.ALL_ACTIONS & ~LootRule.PM, LootRules.Verdict.actionsOf(result));
+        assertEquals(1, rules.getErrors().size());
+        assertTrue(rules.getErrors().get(0).startsWith("Line 3: "));
+    }
+
+    private static byte kind(LootRules rules, String itemName, long value) {
+        return LootRules.Verdict.kindOf(rules.verdictFor(itemName).evaluate(null, 1, value));
+    }
+}
@@ -0,0 +1,80 @@
+package com.discord.loot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class NameMatcherTest {
+    @Test
+    public void exactGlobIsAnExactName() {
+        NameMatcher matcher = NameMatcher.glob("Abyssal Whip");
+        assertEquals("abyssal whip", matcher.exactName());
+        assertTrue(matcher.matches("abyssal whip"));
+        assertFalse(matcher.matches("abyssal whip (or)"));
+    }
+
+    @Test
+    public void simpleGlobsMatchByPosition() {
+        assertTrue(NameMatcher.glob("dragon*").matches("dragon bones"));
+        assertFalse(NameMatcher.glob("dragon*").matches("baby dragon bones"));
+        assertTrue(NameMatcher.glob("*bones").matches("baby dragon bones"));
+        assertFalse(NameMatcher.glob("*bones").matches("bones to peaches"));
+        assertTrue(NameMatcher.glob("*box*").matches("mystery box"));
+        assertTrue(NameMatcher.glob("*").matches("anything"));
+        assertTrue(NameMatcher.glob("**").matches(""));
+        assertNull(NameMatcher.glob("*box*").exactName());
+    }
+
+    @Test
+    public void generalGlobsAnchorBothEnds() {
+        NameMatcher matcher = NameMatcher.glob("*slayer*box*");
+        assertTrue(matcher.matches("slayer reward box"));
+        assertFalse(matcher.matches("box of slayer"));
+
+        NameMatcher single = NameMatcher.glob("rune ?h");
+        assertTrue(single.matches("rune 2h"));
+        assertFalse(single.matches("rune 2hs"));
+    }
+
+    @Test
+    public void globCharactersOutsideWildcardsAreLiteral() {
+        NameMatcher matcher = NameMatcher.glob("super combat (4)*");
+        assertTrue(matcher.matches("super combat (4)"));
+        assertFalse(matcher.matches("super combat 4"));
+        assertTrue(NameMatcher.glob("a.?c").matches("a.bc"));
+        assertFalse(NameMatcher.glob("a.?c").matches("axbc"));
+    }
+
+    @Test
+    public void regexMatchesAnywhereIgnoringCase() {
+        NameMatcher matcher = NameMatcher.regex("^Dragon (axe|pickaxe)$");
+        assertTrue(matcher.matches("dragon pickaxe"));
+        assertFalse(matcher.matches("dragon pickaxe (or)"));
+        assertTrue(NameMatcher.regex("whip").matches("abyssal whip"));
+        assertNull(matcher.exactName());
+    }
+
+    @Test
+    public void nullNameNeverMatches() {
+        assertFalse(NameMatcher.glob("*").matches(null));
+        assertFalse(NameMatcher.regex(".*").matches(null));
+    }
+
+    @Test
+    public void equalPatternsShareASource() {
+        assertEquals(NameMatcher.glob("*Box*").source(), NameMatcher.glob("*box*").source());
+        assertFalse(NameMatcher.glob("box").source().equals(NameMatcher.regex("box").source()));
+    }
+
+    @Test
+    public void excludingRejectsTheExcludedNames() {
+        NameMatcher matcher = NameMatcher.glob("*box*").excluding(NameMatcher.glob("*slayer*box*"));
+        assertTrue(matcher.matches("mystery box"));
+        assertFalse(matcher.matches("slayer reward box"));
+        assertFalse(matcher.source().equals(NameMatcher.glob("*box*").source()));
+        assertNull(NameMatcher.glob("box").excluding(NameMatcher.glob("x")).exactName());
+    }
+}
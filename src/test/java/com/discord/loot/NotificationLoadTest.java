@@ -0,0 +1,62 @@
+package com.discord.loot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * End-to-end load runs of the notification path against {@link FakeDiscordServer}. Sizes are kept
+ * small enough for CI; run {@link LoadReplayHarness#main} for longer soaks.
+ */
+public class NotificationLoadTest {
+    private FakeDiscordServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new FakeDiscordServer();
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void deliversEveryNotificationWhenDiscordIsHealthy() throws Exception {
+        server.rateLimit(50, 1000).latency(20, 30);
+
+        LoadReplayHarness.Options options = new LoadReplayHarness.Options();
+        options.lootEvents = 600;
+        options.chatEvents = 60;
+        options.eventsPerSecond = 300;
+        LoadReplayHarness.Report report = LoadReplayHarness.run(server, options);
+
+        assertEquals(report.toString(), 0, report.lostEmbeds);
+        assertEquals(report.toString(), 0, report.duplicateEmbeds);
+        assertEquals(report.toString(), 0, report.badRequests);
+        // Pacing comes from the rate limit headers, so 429s should be rare; a loaded machine can
+        // still stall a send past a window boundary now and then.
+        assertTrue(report.toString(), report.tooManyRequests <= Math.max(2, report.requests / 20));
+    }
+
+    @Test
+    public void recoversFromThrottlingServerErrorsAndResets() throws Exception {
+        server.rateLimit(50, 1000).latency(20, 60).faults(0.05, 0.05, 0.02);
+
+        LoadReplayHarness.Options options = new LoadReplayHarness.Options();
+        options.lootEvents = 400;
+        options.chatEvents = 40;
+        options.eventsPerSecond = 200;
+        LoadReplayHarness.Report report = LoadReplayHarness.run(server, options);
+
+        assertTrue("faults were injected", report.tooManyRequests + report.serverErrors + report.connectionResets > 0);
+        assertEquals(report.toString(), 0, report.lostEmbeds);
+        assertEquals(report.toString(), 0, report.duplicateEmbeds);
+        assertEquals(report.toString(), 0, report.badRequests);
+        // Early retries are judged by the server's clock, so allow the odd one from scheduling jitter.
+        assertTrue(report.toString(), report.earlyRetries <= Math.max(1, report.tooManyRequests / 5));
+    }
+}
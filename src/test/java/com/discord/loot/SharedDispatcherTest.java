@@ -0,0 +1,20 @@
+package com.discord.loot;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SharedDispatcherTest {
+    @Test
+    public void relaysOnlyDiscordWebhooks() {
+        assertTrue(SharedDispatcher.isRelayed("https://discord.com/api/webhooks/1/token"));
+        assertTrue(SharedDispatcher.isRelayed("https://discordapp.com/api/webhooks/1/token"));
+        assertTrue(SharedDispatcher.isRelayed("https://canary.discord.com/api/webhooks/1/token"));
+
+        assertFalse(SharedDispatcher.isRelayed("http://discord.com/api/webhooks/1/token"));
+        assertFalse(SharedDispatcher.isRelayed("https://discord.com.example.org/api/webhooks/1/token"));
+        assertFalse(SharedDispatcher.isRelayed("https://discord.com/api/channels/1/messages"));
+        assertFalse(SharedDispatcher.isRelayed("http://127.0.0.1:8080/admin"));
+    }
+}